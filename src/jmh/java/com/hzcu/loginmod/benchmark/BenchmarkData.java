@@ -0,0 +1,81 @@
+package com.hzcu.loginmod.benchmark;
+
+import com.hzcu.loginmod.auth.UserDataCsv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试使用的数据生成工具
+ * 使用固定种子，每次运行生成相同的数据
+ */
+final class BenchmarkData {
+    private static final long SEED = 20231001L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成 count 个形如 player000123 的玩家名
+     */
+    static List<String> playerNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(String.format("player%06d", i));
+        }
+        return names;
+    }
+
+    /**
+     * 生成 size 个待查询的名字，一半命中，一半不存在
+     * mixedCase 为 true 时命中的名字随机转为大写（玩家名不区分大小写）
+     */
+    static String[] lookups(List<String> names, int size, boolean mixedCase) {
+        Random random = new Random(SEED);
+        String[] lookups = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) {
+                String name = names.get(random.nextInt(names.size()));
+                lookups[i] = mixedCase && random.nextBoolean() ? name.toUpperCase(Locale.ROOT) : name;
+            } else {
+                lookups[i] = "stranger" + random.nextInt(1_000_000);
+            }
+        }
+        return lookups;
+    }
+
+    /**
+     * 生成 count 个用户，密码为 18 位证件号码格式的明文
+     */
+    static Map<String, String> users(int count) {
+        Random random = new Random(SEED);
+        Map<String, String> users = new LinkedHashMap<>(count * 2);
+        for (String name : playerNames(count)) {
+            users.put(name, String.format("3301%08d%06d", random.nextInt(100_000_000), random.nextInt(1_000_000)));
+        }
+        return users;
+    }
+
+    /**
+     * 将用户写成 userdata.csv 格式
+     */
+    static void writeCsv(Map<String, String> users, Path csvPath) throws IOException {
+        Files.createDirectories(csvPath.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
+            writer.write(UserDataCsv.HEADER);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : users.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.hzcu.loginmod.benchmark;
+
+import com.hzcu.loginmod.auth.CredentialIndex;
+import com.hzcu.loginmod.auth.CsvAuthBackend;
+import com.hzcu.loginmod.auth.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 凭据查询和密码验证
+ *
+ * findPassword 分别测量从 CSV 解析出的 HashMap 和内存映射索引（userdata.idx）查询；
+ * verify 测量 PBKDF2 哈希记录和旧格式明文记录的验证耗时。
+ */
+public class CredentialBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Lookup {
+        @Param({"100000"})
+        public int users;
+
+        @Param({"csv", "index"})
+        public String storage;
+
+        private CsvAuthBackend backend;
+        private String[] lookups;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            Map<String, String> data = BenchmarkData.users(users);
+            Path dir = Paths.get("credentials-" + users);
+            Path csvPath = dir.resolve("userdata.csv");
+            Path indexPath = dir.resolve("userdata.idx");
+            BenchmarkData.writeCsv(data, csvPath);
+            Files.deleteIfExists(indexPath);
+            if (storage.equals("index")) {
+                CredentialIndex.write(data, indexPath);
+            }
+
+            backend = new CsvAuthBackend(csvPath, indexPath);
+            backend.load();
+            lookups = BenchmarkData.lookups(new ArrayList<>(data.keySet()), LOOKUPS, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            backend.flush();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Verify {
+        @Param({"10000", "100000"})
+        public int iterations;
+
+        private String hashed;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            hashed = PasswordHasher.hash("123456", iterations);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Legacy {
+        private String plaintext = "330100199001123456";
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public String findPassword(Lookup state) {
+        state.next = (state.next + 1) & (LOOKUPS - 1);
+        return state.backend.findPassword(state.lookups[state.next]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public boolean verifyHashed(Verify state) {
+        return PasswordHasher.verify("123456", state.hashed);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public boolean verifyPlaintext(Legacy state) {
+        return PasswordHasher.verify("123456", state.plaintext);
+    }
+}
@@ -0,0 +1,96 @@
+package com.hzcu.loginmod.benchmark;
+
+import com.hzcu.loginmod.config.LoginSettings;
+import com.hzcu.loginmod.policy.AuthState;
+import com.hzcu.loginmod.policy.RestrictedAction;
+import com.hzcu.loginmod.policy.RestrictionPolicy;
+import com.hzcu.loginmod.session.SessionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个 tick 的限制判断
+ *
+ * 模拟一个 tick 内每位在线玩家各产生一次移动和一次交互：从会话表读取状态，再查询编译好的策略。
+ * perAction 逐个调用 isRestricted，mask 先取整个状态的位掩码再按位判断（数据包过滤器的做法）。
+ * 一半玩家已登录，其余分布在未登录、验证中和锁定状态。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestrictionBenchmark {
+
+    @Param({"20", "200"})
+    public int players;
+
+    private RestrictionPolicy policy;
+    private UUID[] uuids;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        policy = RestrictionPolicy.compile(new LoginSettings());
+        uuids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            UUID uuid = new UUID(0x4C4F47494EL, i);
+            uuids[i] = uuid;
+            SessionRegistry.join(uuid);
+            switch (i % 6) {
+                case 0, 1, 2 -> SessionRegistry.authenticate(uuid, "player" + i);
+                case 3 -> SessionRegistry.beginAuthentication(uuid);
+                case 4 -> SessionRegistry.lock(uuid, Long.MAX_VALUE);
+                default -> {
+                    // 保持未登录
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (UUID uuid : uuids) {
+            SessionRegistry.remove(uuid);
+        }
+    }
+
+    @Benchmark
+    public int perAction() {
+        int denied = 0;
+        for (UUID uuid : uuids) {
+            AuthState state = SessionRegistry.stateOf(uuid);
+            if (policy.isRestricted(state, RestrictedAction.MOVE)) {
+                denied++;
+            }
+            if (policy.isRestricted(state, RestrictedAction.INTERACT_BLOCK)) {
+                denied++;
+            }
+        }
+        return denied;
+    }
+
+    @Benchmark
+    public int mask() {
+        int checked = RestrictedAction.MOVE.bit() | RestrictedAction.INTERACT_BLOCK.bit();
+        int denied = 0;
+        for (UUID uuid : uuids) {
+            denied += Integer.bitCount(policy.maskFor(SessionRegistry.stateOf(uuid)) & checked);
+        }
+        return denied;
+    }
+}
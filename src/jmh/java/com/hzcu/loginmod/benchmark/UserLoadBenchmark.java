@@ -0,0 +1,84 @@
+package com.hzcu.loginmod.benchmark;
+
+import com.hzcu.loginmod.auth.CredentialIndex;
+import com.hzcu.loginmod.auth.CsvAuthBackend;
+import com.hzcu.loginmod.auth.UserDataCsv;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户数据加载
+ *
+ * parseCsv 只测量 CSV 解析；reloadCsv 测量 CsvAuthBackend.load() 的完整重新加载（解析、发布快照、统计变化）；
+ * openIndex 测量映射预编译索引，作为 CSV 加载的对照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path csvPath;
+    private Path indexPath;
+    private CsvAuthBackend backend;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path dir = Paths.get("userdata-" + rows);
+        csvPath = dir.resolve("userdata.csv");
+        indexPath = dir.resolve("userdata.idx");
+        Map<String, String> users = BenchmarkData.users(rows);
+        BenchmarkData.writeCsv(users, csvPath);
+        CredentialIndex.write(users, indexPath);
+
+        // 重新加载只读 CSV，索引放在另一个不存在的路径
+        backend = new CsvAuthBackend(csvPath, dir.resolve("missing.idx"));
+        backend.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        backend.flush();
+        Files.deleteIfExists(csvPath);
+        Files.deleteIfExists(indexPath);
+    }
+
+    @Benchmark
+    public Map<String, String> parseCsv() throws IOException {
+        return UserDataCsv.read(csvPath);
+    }
+
+    @Benchmark
+    public int reloadCsv() {
+        backend.load();
+        return backend.getUserCount();
+    }
+
+    @Benchmark
+    public int openIndex() throws IOException {
+        return CredentialIndex.open(indexPath).size();
+    }
+}
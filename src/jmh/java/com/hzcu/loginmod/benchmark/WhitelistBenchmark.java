@@ -0,0 +1,115 @@
+package com.hzcu.loginmod.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hzcu.loginmod.config.PlayerIdCache;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 白名单和管理员查询
+ *
+ * whitelisted/administrator 测量按名字查询（规范化后查集合），
+ * whitelistedById/administratorById 测量在线玩家使用的 UUID 查询（离线模式推导的 UUID），
+ * listScan 测量最初基于 ArrayList.contains 的实现作为对照。
+ * 一半查询命中（名字查询大小写随机），一半不存在。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitelistBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private String[] lookups;
+    private UUID[] idLookups;
+    private List<String> list;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<String> names = BenchmarkData.playerNames(entries);
+        JsonArray players = new JsonArray();
+        names.forEach(players::add);
+        JsonObject config = new JsonObject();
+        config.add("whitelistedPlayers", players);
+        config.add("administrators", players);
+
+        // 工作目录是 build/jmh-run，这里写入的是基准测试专用的配置
+        Files.createDirectories(WhitelistConfig.CONFIG_PATH.getParent());
+        Files.writeString(WhitelistConfig.CONFIG_PATH, new Gson().toJson(config));
+        Files.deleteIfExists(PlayerIdCache.CACHE_PATH);
+        WhitelistConfig.init();
+        WhitelistConfig.setOfflineMode(true);
+        if (WhitelistConfig.getWhitelistCount() != entries) {
+            throw new IllegalStateException("whitelist has " + WhitelistConfig.getWhitelistCount() + " entries");
+        }
+
+        list = new ArrayList<>(names);
+        lookups = BenchmarkData.lookups(names, LOOKUPS, true);
+        String[] exactNames = BenchmarkData.lookups(names, LOOKUPS, false);
+        idLookups = new UUID[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            idLookups[i] = PlayerIdCache.offlineId(exactNames[i]);
+        }
+    }
+
+    private String nextName() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lookups[next];
+    }
+
+    private UUID nextId() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return idLookups[next];
+    }
+
+    @Benchmark
+    public boolean whitelisted() {
+        return WhitelistConfig.isWhitelisted(nextName());
+    }
+
+    @Benchmark
+    public boolean administrator() {
+        return WhitelistConfig.isAdministrator(nextName());
+    }
+
+    @Benchmark
+    public boolean whitelistedById() {
+        return WhitelistConfig.isWhitelisted(nextId());
+    }
+
+    @Benchmark
+    public boolean administratorById() {
+        return WhitelistConfig.isAdministrator(nextId());
+    }
+
+    @Benchmark
+    public boolean listScan() {
+        return list.contains(nextName());
+    }
+}
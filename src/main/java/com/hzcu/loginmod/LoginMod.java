@@ -1,21 +1,48 @@
 package com.hzcu.loginmod;
 
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.auth.AuthExecutor;
+import com.hzcu.loginmod.auth.PasswordHasher;
+import com.hzcu.loginmod.command.LoginAdminCommand;
+import com.hzcu.loginmod.command.LoginAuditCommand;
 import com.hzcu.loginmod.command.LoginCommand;
+import com.hzcu.loginmod.command.LoginStatsCommand;
 import com.hzcu.loginmod.command.WhitelistCommand;
+import com.hzcu.loginmod.config.FileWatcher;
+import com.hzcu.loginmod.config.LoginSettings;
 import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.db.LoginDatabase;
+import com.hzcu.loginmod.event.MovementRestrictionHandler;
 import com.hzcu.loginmod.event.PlayerRestrictionHandler;
+import com.hzcu.loginmod.limbo.LimboManager;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+import com.hzcu.loginmod.metrics.LoginStats;
+import com.hzcu.loginmod.metrics.PrometheusExporter;
+import com.hzcu.loginmod.network.UnauthenticatedPacketGate;
+import com.hzcu.loginmod.policy.AuthState;
+import com.hzcu.loginmod.session.PlayerSession;
+import com.hzcu.loginmod.session.SessionRegistry;
+import com.hzcu.loginmod.store.Stores;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+import net.minecraftforge.server.ServerLifecycleHooks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Locale;
 import java.util.UUID;
 
 @Mod(LoginMod.MODID)
@@ -23,8 +50,15 @@ public class LoginMod {
     public static final String MODID = "loginmod";
     public static final Logger LOGGER = LoggerFactory.getLogger(LoginMod.class);
     
-    // 存储已登录玩家的UUID
-    private static final Set<UUID> loggedInPlayers = new HashSet<>();
+    // 移动限制监听器，只在存在未登录玩家时注册
+    private static final MovementRestrictionHandler movementHandler = new MovementRestrictionHandler();
+    private static boolean movementHandlerRegistered = false;
+    
+    // 用户数据和配置文件的监视器，服务器运行期间有效
+    private static FileWatcher fileWatcher;
+    
+    // 启用时的内嵌用户数据库，服务器运行期间有效
+    private static LoginDatabase database;
 
     public LoginMod() {
         IEventBus modEventBus = FMLJavaModLoadingContext.get().getModEventBus();
@@ -44,39 +78,333 @@ public class LoginMod {
         LOGGER.info("LoginMod common setup");
     }
 
+    @SubscribeEvent
+    public void onServerStarting(ServerStartingEvent event) {
+        configurePasswordHashing();
+        configureUuidMode(event.getServer());
+        startAuditLog(WhitelistConfig.getSettings());
+        database = openDatabase(WhitelistConfig.getSettings());
+        if (database != null) {
+            WhitelistConfig.attachDatabase(database);
+        }
+        LoginCommand.useDatabase(database);
+        LoginCommand.configure(WhitelistConfig.getSettings());
+        Stores.configure(WhitelistConfig.getSettings());
+        if (Stores.isResumeEnabled()) {
+            Stores.sessions().start();
+        }
+        // 其他服务器修改名单后，自动登录新加入白名单的在线玩家
+        MinecraftServer server = event.getServer();
+        Stores.directory().start(() -> server.execute(() -> WhitelistCommand.loginWhitelistedPlayers(server)));
+        if (WhitelistConfig.getSettings().isHotReloadEnabled()) {
+            startFileWatcher(event.getServer());
+        }
+        LoginStats.register();
+        String metricsFile = WhitelistConfig.getSettings().getMetricsFile();
+        if (metricsFile != null && !metricsFile.isBlank()) {
+            PrometheusExporter.start(Paths.get(metricsFile), WhitelistConfig.getSettings().getMetricsIntervalSeconds());
+        }
+    }
+
+    /**
+     * 每个 tick 结束时汇总限制处理器的耗时，每秒更新一次排队位置，每隔半个会话有效期刷新在线玩家的会话
+     */
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            LoginMetrics.endTick();
+            MinecraftServer server = event.getServer();
+            if (server.getTickCount() % 20 == 0) {
+                LoginCommand.notifyQueuePositions(server);
+            }
+            int refreshTicks = Math.max(20, WhitelistConfig.getSettings().getSessionResumeTtlSeconds() * 10);
+            if (Stores.isResumeEnabled() && server.getTickCount() % refreshTicks == 0) {
+                for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+                    rememberSession(player);
+                }
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        if (fileWatcher != null) {
+            fileWatcher.stop();
+            fileWatcher = null;
+        }
+        PrometheusExporter.stop();
+        LoginStats.unregister();
+        // 停服时玩家的退出事件已经处理完，此时保存可以包含所有在线玩家的会话
+        if (Stores.isResumeEnabled()) {
+            Stores.sessions().close();
+        }
+        Stores.shutdown();
+        WhitelistConfig.flush();
+        AuthExecutor.shutdown();
+        LoginCommand.flushUsers();
+        AuditLog.stop();
+        if (database != null) {
+            WhitelistConfig.detachDatabase();
+            database.close();
+            database = null;
+        }
+    }
+    
+    /**
+     * 启用时打开内嵌数据库，未启用或打开失败时返回 null（继续使用 userdata.csv 和 hzculogin.json）
+     */
+    private static LoginDatabase openDatabase(LoginSettings settings) {
+        if (!settings.isDatabaseEnabled()) {
+            return null;
+        }
+        try {
+            return LoginDatabase.open(Paths.get(settings.getDatabaseFile()), settings.getDatabasePoolSize());
+        } catch (SQLException e) {
+            LOGGER.error("无法打开用户数据库 {}，继续使用 userdata.csv 和 hzculogin.json: {}",
+                settings.getDatabaseFile(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 根据 uuidMode 和服务器的正版验证设置决定名单中的名字如何解析为 UUID
+     */
+    private static void configureUuidMode(MinecraftServer server) {
+        String mode = WhitelistConfig.getSettings().getUuidMode();
+        boolean offline = switch (mode == null ? "auto" : mode.toLowerCase(Locale.ROOT)) {
+            case "online" -> false;
+            case "offline" -> true;
+            case "auto" -> !server.usesAuthentication();
+            default -> {
+                LOGGER.warn("未知的 uuidMode: {}，按 auto 处理", mode);
+                yield !server.usesAuthentication();
+            }
+        };
+        WhitelistConfig.setOfflineMode(offline);
+        LOGGER.info("Whitelist UUID resolution: {}", offline ? "offline" : "online");
+    }
+
+    /**
+     * 启用时开始把登录和管理事件写入审计日志
+     */
+    private static void startAuditLog(LoginSettings settings) {
+        if (!settings.isAuditEnabled()) {
+            return;
+        }
+        AuditLog.start(Paths.get(settings.getAuditDirectory()), settings.getAuditBufferSize(),
+            settings.getAuditSegmentMaxMegabytes() * 1024L * 1024L,
+            settings.getAuditRotateHours() * 3600_000L, settings.getAuditMaxSegments());
+    }
+
+    /**
+     * 监视用户数据和配置文件，修改后在后台重新加载
+     */
+    private static void startFileWatcher(MinecraftServer server) {
+        FileWatcher watcher = new FileWatcher();
+        if (database == null) {
+            // 使用数据库时不再读取 userdata.csv 和 userdata.idx
+            watcher.watch(LoginCommand.CSV_FILE_PATH, LoginCommand::reloadUsersIfModified);
+            watcher.watch(LoginCommand.INDEX_FILE_PATH, LoginCommand::reloadUsers);
+        }
+        watcher.watch(WhitelistConfig.CONFIG_PATH, () -> {
+            if (WhitelistConfig.reloadIfModified()) {
+                server.execute(() -> WhitelistCommand.loginWhitelistedPlayers(server));
+            }
+        });
+        try {
+            watcher.start();
+            fileWatcher = watcher;
+        } catch (IOException e) {
+            LOGGER.error("无法监视配置文件，自动重新加载已禁用: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 配置新密码哈希的迭代次数，未指定时在工作线程上按延迟预算校准一次并写回配置文件，
+     * 之后的启动都使用同一个值，已有的哈希不会因为校准结果的波动被重新计算
+     */
+    private static void configurePasswordHashing() {
+        LoginSettings settings = WhitelistConfig.getSettings();
+        if (settings.getHashIterations() > 0) {
+            PasswordHasher.setTargetIterations(settings.getHashIterations());
+            PasswordHasher.setRehashFloor(settings.getHashIterations());
+            LOGGER.info("Password hash iterations set to {}", PasswordHasher.getTargetIterations());
+            return;
+        }
+        
+        int budget = settings.getHashLatencyBudgetMillis();
+        AuthExecutor.submit(() -> PasswordHasher.calibrate(budget)).whenComplete((iterations, error) -> {
+            if (error != null) {
+                LOGGER.warn("Password hash calibration failed, using the default {} iterations: {}",
+                    PasswordHasher.DEFAULT_ITERATIONS, error.toString());
+                return;
+            }
+            PasswordHasher.setTargetIterations(iterations);
+            try {
+                WhitelistConfig.saveHashIterations(iterations);
+            } catch (RuntimeException e) {
+                // 本次运行仍使用校准结果，下次启动会重新校准
+                LOGGER.warn("Password hash iterations calibrated to {} but could not be saved to {}: {}",
+                    iterations, WhitelistConfig.CONFIG_PATH, e.toString());
+                return;
+            }
+            LOGGER.info("Password hash iterations calibrated to {} ({} ms budget), saved to {}",
+                iterations, budget, WhitelistConfig.CONFIG_PATH);
+        });
+    }
+
     @SubscribeEvent
     public void onRegisterCommands(RegisterCommandsEvent event) {
         LoginCommand.register(event.getDispatcher());
         WhitelistCommand.register(event.getDispatcher());
+        LoginAdminCommand.register(event.getDispatcher());
+        LoginStatsCommand.register(event.getDispatcher());
+        LoginAuditCommand.register(event.getDispatcher());
     }
     
     /**
-     * 标记玩家已登录
+     * 标记玩家已登录（必须在服务器主线程调用）
      */
     public static void markPlayerLoggedIn(UUID playerUUID) {
-        loggedInPlayers.add(playerUUID);
-        LOGGER.info("Player {} logged in", playerUUID);
+        markPlayerLoggedIn(playerUUID, null);
+    }
+    
+    /**
+     * 标记玩家已使用指定账号登录（必须在服务器主线程调用）
+     */
+    public static void markPlayerLoggedIn(UUID playerUUID, String account) {
+        // 白名单玩家加入时直接登录，不经过 PENDING
+        SessionRegistry.join(playerUUID);
+        if (SessionRegistry.authenticate(playerUUID, account)) {
+            updateMovementHandler();
+        }
+        UnauthenticatedPacketGate.remove(playerUUID);
+        
+        // 从 limbo 维度回到原来的位置
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        ServerPlayer player = server != null ? server.getPlayerList().getPlayer(playerUUID) : null;
+        if (player != null) {
+            LimboManager.release(player);
+            // 立即发布会话，之后通过代理切换到其他服务器时不必等到离开本服务器
+            rememberSession(player);
+        }
+        LOGGER.debug("Player {} logged in", playerUUID);
+    }
+    
+    /**
+     * 写入或刷新已用账号登录的玩家的会话（必须在服务器主线程调用）
+     * 白名单玩家和未登录的玩家没有账号，不会写入
+     */
+    public static void rememberSession(ServerPlayer player) {
+        if (!Stores.isResumeEnabled()) {
+            return;
+        }
+        String account = getPlayerAccount(player.getUUID());
+        if (account != null) {
+            Stores.sessions().remember(player.getUUID(), player.getIpAddress(), account,
+                WhitelistConfig.getSettings().getSessionResumeTtlSeconds() * 1000L);
+        }
+    }
+    
+    /**
+     * 获取玩家登录时使用的账号，白名单玩家或未登录时返回 null
+     */
+    public static String getPlayerAccount(UUID playerUUID) {
+        PlayerSession session = SessionRegistry.get(playerUUID);
+        return session != null && session.state() == AuthState.AUTHENTICATED ? session.account() : null;
+    }
+    
+    /**
+     * 标记玩家在线但尚未登录
+     */
+    public static void markPlayerPending(UUID playerUUID) {
+        SessionRegistry.join(playerUUID);
+        updateMovementHandler();
+    }
+    
+    /**
+     * 标记玩家正在验证凭据
+     *
+     * @return 玩家处于可以开始验证的状态（未登录、未在验证中、未被锁定）时返回 true
+     */
+    public static boolean markPlayerAuthenticating(UUID playerUUID) {
+        return SessionRegistry.beginAuthentication(playerUUID);
+    }
+    
+    /**
+     * 清除玩家的验证中状态
+     */
+    public static void clearPlayerAuthenticating(UUID playerUUID) {
+        SessionRegistry.failAuthentication(playerUUID);
+    }
+    
+    /**
+     * 登录尝试过于频繁时锁定玩家，到期后自动解除
+     */
+    public static void lockPlayer(UUID playerUUID, long durationMillis) {
+        SessionRegistry.lock(playerUUID, System.currentTimeMillis() + durationMillis);
+    }
+    
+    /**
+     * 检查玩家是否正在验证凭据
+     */
+    public static boolean isPlayerAuthenticating(UUID playerUUID) {
+        return SessionRegistry.stateOf(playerUUID) == AuthState.AUTHENTICATING;
+    }
+    
+    /**
+     * 检查玩家是否在线且尚未登录
+     */
+    public static boolean isPlayerPending(UUID playerUUID) {
+        PlayerSession session = SessionRegistry.get(playerUUID);
+        return session != null && session.state() != AuthState.AUTHENTICATED;
     }
     
     /**
      * 检查玩家是否已登录
      */
     public static boolean isPlayerLoggedIn(UUID playerUUID) {
-        return loggedInPlayers.contains(playerUUID);
+        return SessionRegistry.stateOf(playerUUID) == AuthState.AUTHENTICATED;
+    }
+    
+    /**
+     * 获取玩家当前的登录状态（任意线程均可调用）
+     */
+    public static AuthState getAuthState(UUID playerUUID) {
+        return SessionRegistry.stateOf(playerUUID);
     }
     
     /**
      * 移除玩家登录状态（玩家离开服务器时调用）
      */
     public static void removePlayerLoginStatus(UUID playerUUID) {
-        loggedInPlayers.remove(playerUUID);
-        LOGGER.info("Player {} login status removed", playerUUID);
+        SessionRegistry.remove(playerUUID);
+        updateMovementHandler();
+        UnauthenticatedPacketGate.remove(playerUUID);
+        LOGGER.debug("Player {} login status removed", playerUUID);
+    }
+    
+    /**
+     * 根据未登录玩家数量注册或注销移动限制监听器
+     * 所有玩家都已登录时不再为每个 tick 付出任何事件分发开销
+     */
+    private static void updateMovementHandler() {
+        boolean needed = SessionRegistry.hasUnauthenticated();
+        if (needed && !movementHandlerRegistered) {
+            MinecraftForge.EVENT_BUS.register(movementHandler);
+            movementHandlerRegistered = true;
+            LOGGER.debug("Movement restriction handler registered");
+        } else if (!needed && movementHandlerRegistered) {
+            MinecraftForge.EVENT_BUS.unregister(movementHandler);
+            movementHandlerRegistered = false;
+            LOGGER.debug("Movement restriction handler unregistered");
+        }
     }
     
     /**
      * 检查玩家是否在白名单中（不需要登录）
      */
-    public static boolean isPlayerWhitelisted(String playerName) {
-        return WhitelistConfig.isWhitelisted(playerName);
+    public static boolean isPlayerWhitelisted(UUID playerUUID) {
+        return WhitelistConfig.isWhitelisted(playerUUID);
     }
 }
@@ -0,0 +1,281 @@
+package com.hzcu.loginmod.audit;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 登录审计日志
+ *
+ * 登录、失败、退出和管理员修改写入预先分配的环形缓冲区，记录线程（通常是服务器主线程）不做任何 I/O；
+ * 后台线程把事件逐行写成 NDJSON，文件超过大小或时间上限时轮转，只保留最近的若干个文件。
+ * 缓冲区写满时新事件被丢弃并计数（loginstats 中的 auditDropped），不会阻塞服务器。
+ */
+public final class AuditLog {
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final DateTimeFormatter SEGMENT_NAME =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+    // 缓冲区为空时写入线程的等待时间
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static volatile AuditRingBuffer buffer;
+    private static Thread writerThread;
+    private static volatile boolean running = false;
+    private static volatile Path directory;
+
+    private AuditLog() {
+    }
+
+    /**
+     * 启动审计日志（服务器启动时调用）
+     */
+    public static synchronized void start(Path dir, int bufferSize, long segmentMaxBytes, long rotateMillis,
+                                          int maxSegments) {
+        stop();
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("无法创建审计日志目录 {}，审计日志已禁用: {}", dir, e.getMessage());
+            return;
+        }
+        AuditRingBuffer ring = new AuditRingBuffer(bufferSize);
+        SegmentWriter segments = new SegmentWriter(dir, segmentMaxBytes, rotateMillis, maxSegments);
+        directory = dir;
+        buffer = ring;
+        running = true;
+        writerThread = new Thread(() -> drain(ring, segments), "LoginMod-Audit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        LoginMod.LOGGER.info("审计日志写入 {}（缓冲 {} 条）", dir, ring.capacity());
+    }
+
+    /**
+     * 写出缓冲区中剩余的事件后停止（服务器停止时调用）
+     */
+    public static synchronized void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        buffer = null;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    /**
+     * 审计日志所在目录，未启用时返回 null
+     */
+    public static Path directory() {
+        return directory;
+    }
+
+    /**
+     * 记录一个事件（任意线程，不阻塞）
+     */
+    public static void record(AuditType type, UUID playerUUID, String playerName, String account, String ip,
+                              String detail) {
+        AuditRingBuffer ring = buffer;
+        if (ring == null) {
+            return;
+        }
+        if (!ring.offer(System.currentTimeMillis(), type, playerUUID, playerName, account, ip, detail)) {
+            LoginMetrics.recordAuditDropped();
+        }
+    }
+
+    /**
+     * 记录管理员的修改，操作者为控制台时 actor 为 null
+     */
+    public static void recordAdmin(String actor, String detail) {
+        record(AuditType.ADMIN, null, actor != null ? actor : "Console", null, null, detail);
+    }
+
+    private static void drain(AuditRingBuffer ring, SegmentWriter segments) {
+        StringBuilder line = new StringBuilder(256);
+        try {
+            while (true) {
+                AuditRingBuffer.Slot slot = ring.peek();
+                if (slot == null) {
+                    segments.idle();
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                line.setLength(0);
+                format(slot, line);
+                ring.release(slot);
+                segments.write(line);
+            }
+        } finally {
+            segments.close();
+        }
+    }
+
+    /**
+     * 把事件格式化为一行 JSON：{"ts":…,"type":…,"player":…,"uuid":…,"account":…,"ip":…,"detail":…}
+     */
+    static void format(AuditRingBuffer.Slot slot, StringBuilder out) {
+        out.append("{\"ts\":\"").append(Instant.ofEpochMilli(slot.timeMillis)).append('"');
+        out.append(",\"type\":\"").append(slot.type.key()).append('"');
+        appendField(out, "player", slot.playerName);
+        appendField(out, "uuid", slot.playerUUID != null ? slot.playerUUID.toString() : null);
+        appendField(out, "account", slot.account);
+        appendField(out, "ip", slot.ip);
+        appendField(out, "detail", slot.detail);
+        out.append("}\n");
+    }
+
+    private static void appendField(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * 按时间排序的全部日志文件（旧的在前）
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * 当前写入的日志文件，按大小和时间轮转（只由写入线程使用）
+     */
+    private static final class SegmentWriter {
+        private final Path dir;
+        private final long maxBytes;
+        private final long rotateMillis;
+        private final int maxSegments;
+        private OutputStream out;
+        private long bytes;
+        private long openedAt;
+        private boolean dirty;
+
+        SegmentWriter(Path dir, long maxBytes, long rotateMillis, int maxSegments) {
+            this.dir = dir;
+            this.maxBytes = maxBytes;
+            this.rotateMillis = rotateMillis;
+            this.maxSegments = maxSegments;
+        }
+
+        void write(CharSequence line) {
+            try {
+                long now = System.currentTimeMillis();
+                if (out == null || bytes >= maxBytes || (rotateMillis > 0 && now - openedAt >= rotateMillis)) {
+                    rotate(now);
+                }
+                byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+                out.write(encoded);
+                bytes += encoded.length;
+                dirty = true;
+            } catch (IOException e) {
+                LoginMod.LOGGER.error("写入审计日志时出错: {}", e.getMessage());
+                closeQuietly();
+            }
+        }
+
+        /**
+         * 缓冲区暂时为空时把已写入的内容交给操作系统，查询命令可以立即读到
+         */
+        void idle() {
+            if (!dirty) {
+                return;
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LoginMod.LOGGER.error("写入审计日志时出错: {}", e.getMessage());
+                closeQuietly();
+            }
+            dirty = false;
+        }
+
+        private void rotate(long now) throws IOException {
+            closeQuietly();
+            Path file = dir.resolve(SEGMENT_PREFIX + SEGMENT_NAME.format(Instant.ofEpochMilli(now)) + SEGMENT_SUFFIX);
+            out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024);
+            bytes = Files.size(file);
+            openedAt = now;
+            deleteOldSegments();
+        }
+
+        private void deleteOldSegments() {
+            try {
+                List<Path> all = segments(dir);
+                for (int i = 0; i < all.size() - maxSegments; i++) {
+                    Files.deleteIfExists(all.get(i));
+                }
+            } catch (IOException e) {
+                LoginMod.LOGGER.warn("清理旧的审计日志时出错: {}", e.getMessage());
+            }
+        }
+
+        private void closeQuietly() {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // 文件已经不可用，下一次写入时重新打开
+            }
+            out = null;
+            dirty = false;
+        }
+
+        void close() {
+            idle();
+            closeQuietly();
+        }
+    }
+}
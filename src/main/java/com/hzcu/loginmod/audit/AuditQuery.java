@@ -0,0 +1,147 @@
+package com.hzcu.loginmod.audit;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 在审计日志中查找某个玩家名、账号或 UUID 的事件
+ *
+ * 按时间顺序逐行流式读取起始时间之后的日志文件，先用不分配对象的子串比较过滤，
+ * 只解析可能匹配的行；结果只保留最近的 limit 条，内存占用与日志大小无关。
+ */
+public final class AuditQuery {
+
+    private AuditQuery() {
+    }
+
+    /**
+     * 一条匹配的事件
+     */
+    public record Entry(Instant time, String type, String playerName, String account, String ip, String detail) {
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param entries 最近的匹配事件（旧的在前）
+     * @param matched 匹配的事件总数
+     * @param scannedLines 读取的行数
+     */
+    public record Result(List<Entry> entries, long matched, long scannedLines) {
+    }
+
+    /**
+     * 在后台线程上查询
+     *
+     * @param needle 玩家名或账号（不区分大小写），也可以是 UUID
+     * @param sinceMillis 只返回该时间之后的事件
+     */
+    public static CompletableFuture<Result> start(Path dir, String needle, long sinceMillis, int limit) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(search(dir, needle, sinceMillis, limit));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, "LoginMod-AuditQuery");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    public static Result search(Path dir, String needle, long sinceMillis, int limit) throws IOException {
+        Deque<Entry> recent = new ArrayDeque<>(limit);
+        long matched = 0;
+        long scanned = 0;
+
+        List<Path> segments = AuditLog.segments(dir);
+        for (Path segment : segments) {
+            try {
+                // 最后修改时间早于起始时间的文件不可能包含需要的事件
+                if (Files.getLastModifiedTime(segment).toMillis() < sinceMillis) {
+                    continue;
+                }
+            } catch (NoSuchFileException e) {
+                continue; // 已被轮转删除
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    scanned++;
+                    if (!containsIgnoreCase(line, needle)) {
+                        continue;
+                    }
+                    Entry entry = parse(line, needle, sinceMillis);
+                    if (entry == null) {
+                        continue;
+                    }
+                    matched++;
+                    if (recent.size() == limit) {
+                        recent.removeFirst();
+                    }
+                    recent.addLast(entry);
+                }
+            } catch (NoSuchFileException e) {
+                // 读取前已被轮转删除
+            }
+        }
+        return new Result(new ArrayList<>(recent), matched, scanned);
+    }
+
+    /**
+     * 解析一行并检查玩家名、账号或 UUID 是否与查询完全一致，不匹配或格式无效时返回 null
+     */
+    private static Entry parse(String line, String needle, long sinceMillis) {
+        JsonObject json;
+        Instant time;
+        try {
+            json = JsonParser.parseString(line).getAsJsonObject();
+            time = Instant.parse(json.get("ts").getAsString());
+        } catch (JsonParseException | IllegalStateException | NullPointerException | DateTimeParseException e) {
+            return null; // 写到一半的最后一行或损坏的行
+        }
+        if (time.toEpochMilli() < sinceMillis) {
+            return null;
+        }
+        String playerName = text(json, "player");
+        String account = text(json, "account");
+        if (!needle.equalsIgnoreCase(playerName) && !needle.equalsIgnoreCase(account)
+                && !needle.equalsIgnoreCase(text(json, "uuid"))) {
+            return null;
+        }
+        return new Entry(time, text(json, "type"), playerName, account, text(json, "ip"), text(json, "detail"));
+    }
+
+    private static String text(JsonObject json, String field) {
+        JsonElement element = json.get(field);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private static boolean containsIgnoreCase(String text, String needle) {
+        int max = text.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package com.hzcu.loginmod.audit;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预先分配的多生产者、单消费者环形缓冲区
+ *
+ * 生产者用 CAS 领取一个序号，填好对应槽位的字段后写入 published 发布；唯一的消费者按序号顺序读取已发布的槽位，
+ * 处理完后推进 tail 把槽位还给生产者。缓冲区满时 offer 立即返回 false，生产者从不等待。
+ * 记录时不分配对象，只把已有的引用写进槽位。
+ */
+final class AuditRingBuffer {
+
+    /**
+     * 一个槽位，字段由领取它的生产者写入，published 发布后只由消费者读取
+     */
+    static final class Slot {
+        // 等于序号 + 1 时表示该序号的事件已发布
+        private volatile long published;
+        long timeMillis;
+        AuditType type;
+        UUID playerUUID;
+        String playerName;
+        String account;
+        String ip;
+        String detail;
+
+        private void clear() {
+            type = null;
+            playerUUID = null;
+            playerName = null;
+            account = null;
+            ip = null;
+            detail = null;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    // 下一个可领取的序号
+    private final AtomicLong head = new AtomicLong();
+    // 下一个要消费的序号，只由消费者写入
+    private volatile long tail;
+
+    /**
+     * @param capacity 槽位数，向上取整到 2 的幂
+     */
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * 写入一个事件，缓冲区已满时返回 false（任意线程）
+     */
+    boolean offer(long timeMillis, AuditType type, UUID playerUUID, String playerName, String account,
+                  String ip, String detail) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= slots.length) {
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.timeMillis = timeMillis;
+        slot.type = type;
+        slot.playerUUID = playerUUID;
+        slot.playerName = playerName;
+        slot.account = account;
+        slot.ip = ip;
+        slot.detail = detail;
+        slot.published = sequence + 1;
+        return true;
+    }
+
+    /**
+     * 下一个已发布的事件，没有时返回 null（只由消费者调用）
+     */
+    Slot peek() {
+        long next = tail;
+        Slot slot = slots[(int) (next & mask)];
+        return slot.published == next + 1 ? slot : null;
+    }
+
+    /**
+     * 处理完 peek 返回的事件后把槽位还给生产者（只由消费者调用）
+     */
+    void release(Slot slot) {
+        slot.clear();
+        tail = tail + 1;
+    }
+
+    /**
+     * 已领取但尚未消费的事件数（近似值）
+     */
+    int size() {
+        return (int) Math.max(0, head.get() - tail);
+    }
+}
@@ -0,0 +1,35 @@
+package com.hzcu.loginmod.audit;
+
+/**
+ * 审计事件类型
+ */
+public enum AuditType {
+    // 通过 /login 登录成功
+    LOGIN("login"),
+    // /login 密码错误、用户不存在或认证服务不可用，detail 为原因
+    LOGIN_FAILED("login_failed"),
+    // 登录尝试过于频繁被锁定
+    LOCKED("locked"),
+    // 白名单玩家自动登录
+    AUTO_LOGIN("auto_login"),
+    // 恢复了上次的登录会话
+    RESUME("resume"),
+    LOGOUT("logout"),
+    // 加入后超时未登录被踢出
+    TIMEOUT_KICK("timeout_kick"),
+    // 管理员修改用户或名单，detail 描述修改内容
+    ADMIN("admin");
+
+    private final String key;
+
+    AuditType(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 写入日志文件时使用的名称
+     */
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,173 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.metrics.LoginMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 登录验证的准入队列
+ *
+ * 服务器重启后所有玩家几乎同时 /login，验证任务按提交顺序（FIFO）排队，同时进行的验证不超过 maxInFlight 个，
+ * 其余在队列中等待；队列已满时立即拒绝并给出建议的重试时间，而不是无限堆积。
+ * 并发上限只由本队列控制：每个名额对应一个工作线程上的循环，完成一个任务后直接接着执行队首的任务。
+ * 队列长度和排队耗时记录在 LoginMetrics 中，用于调整上限。
+ */
+public final class AdmissionQueue {
+    private static final long DEFAULT_VERIFY_MILLIS = 100;
+
+    private final int maxInFlight;
+    private final int capacity;
+
+    // 以下字段由本对象的锁保护
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    /**
+     * 一次提交的结果
+     *
+     * @param future           验证结果，被拒绝时为 null
+     * @param position         前面还在排队的人数，0 表示已开始验证
+     * @param retryAfterMillis 被拒绝时建议的重试等待时间
+     */
+    public record Admission(CompletableFuture<AuthResult> future, int position, long retryAfterMillis) {
+
+        public boolean accepted() {
+            return future != null;
+        }
+    }
+
+    private record Ticket(UUID playerUUID, Supplier<AuthResult> task, CompletableFuture<AuthResult> future,
+                          long enqueuedAt) {
+    }
+
+    public AdmissionQueue(int maxInFlight, int capacity) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * 提交一个验证任务，有空闲名额时立即开始，否则排到队尾
+     */
+    public Admission submit(UUID playerUUID, Supplier<AuthResult> task) {
+        Ticket ticket = new Ticket(playerUUID, task, new CompletableFuture<>(), System.nanoTime());
+        int position;
+        synchronized (this) {
+            if (inFlight < maxInFlight && waiting.isEmpty()) {
+                inFlight++;
+                position = 0;
+            } else if (waiting.size() >= capacity) {
+                LoginMetrics.recordQueueRejected();
+                return new Admission(null, waiting.size(), estimateWaitMillis(waiting.size() + inFlight));
+            } else {
+                waiting.addLast(ticket);
+                position = waiting.size();
+                LoginMetrics.recordQueueDepth(waiting.size());
+            }
+        }
+
+        if (position == 0) {
+            dispatch(ticket);
+        }
+        return new Admission(ticket.future, position, 0);
+    }
+
+    /**
+     * 取消玩家仍在排队的任务（玩家离开服务器时调用），已开始的验证不受影响
+     */
+    public void cancel(UUID playerUUID) {
+        Ticket removed = null;
+        synchronized (this) {
+            Iterator<Ticket> iterator = waiting.iterator();
+            while (iterator.hasNext()) {
+                Ticket ticket = iterator.next();
+                if (ticket.playerUUID.equals(playerUUID)) {
+                    iterator.remove();
+                    removed = ticket;
+                    break;
+                }
+            }
+            if (removed != null) {
+                LoginMetrics.recordQueueDepth(waiting.size());
+            }
+        }
+        if (removed != null) {
+            removed.future.completeExceptionally(new CancellationException("player left the queue"));
+        }
+    }
+
+    /**
+     * 按顺序返回正在排队的玩家
+     */
+    public synchronized List<UUID> waitingPlayers() {
+        List<UUID> players = new ArrayList<>(waiting.size());
+        for (Ticket ticket : waiting) {
+            players.add(ticket.playerUUID);
+        }
+        return players;
+    }
+
+    /**
+     * 把一个已占用名额的任务交给工作线程
+     * 工作线程池正在停止时在当前线程上让任务失败，并循环把名额交给下一个任务
+     */
+    private void dispatch(Ticket ticket) {
+        while (ticket != null) {
+            Ticket first = ticket;
+            try {
+                AuthExecutor.execute(() -> runFrom(first));
+                return;
+            } catch (RejectedExecutionException e) {
+                first.future.completeExceptionally(e);
+                ticket = next();
+            }
+        }
+    }
+
+    /**
+     * 在工作线程上依次执行任务：完成一个后直接取队首的任务继续，队列为空时释放名额
+     */
+    private void runFrom(Ticket first) {
+        Ticket ticket = first;
+        while (ticket != null) {
+            LoginMetrics.QUEUE_WAIT.record(System.nanoTime() - ticket.enqueuedAt);
+            try {
+                ticket.future.complete(ticket.task.get());
+            } catch (Throwable e) {
+                ticket.future.completeExceptionally(e);
+            }
+            ticket = next();
+        }
+    }
+
+    /**
+     * 一个验证完成后取出队首的任务继续使用该名额，队列为空时释放名额并返回 null
+     */
+    private Ticket next() {
+        synchronized (this) {
+            Ticket next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return null;
+            }
+            LoginMetrics.recordQueueDepth(waiting.size());
+            return next;
+        }
+    }
+
+    /**
+     * 按平均验证耗时估算前面 ahead 个任务完成所需的时间
+     */
+    private long estimateWaitMillis(int ahead) {
+        double mean = LoginMetrics.VERIFY_LATENCY.snapshot().mean() / 1_000_000.0;
+        double perTask = mean > 0 ? mean : DEFAULT_VERIFY_MILLIS;
+        return Math.max(1000, (long) Math.ceil(perTask * ahead / maxInFlight));
+    }
+}
@@ -0,0 +1,18 @@
+package com.hzcu.loginmod.auth;
+
+/**
+ * 认证后端
+ * 实现类会在登录工作线程上被并发调用，可以阻塞，但不能访问服务器主线程的状态
+ */
+public interface AuthBackend {
+
+    /**
+     * 后端名称，用于配置和日志
+     */
+    String name();
+
+    /**
+     * 验证用户名和登录密码
+     */
+    AuthResult authenticate(String username, String password);
+}
@@ -0,0 +1,100 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 登录验证工作线程池
+ *
+ * 凭据验证（哈希计算、数据库或 CA 请求）不能在服务器主线程上执行，
+ * 在 Java 21 上使用虚拟线程，在 Java 17 上回退到少量平台线程。
+ * 通过 submit 提交的任务（/adduser、哈希校准等）同时进行的数量有上限，超出时立即拒绝而不是无限排队；
+ * /login 的验证由 {@link AdmissionQueue} 按 loginMaxConcurrent 限流后通过 execute 提交，不占用这里的名额。
+ */
+public final class AuthExecutor {
+    private static final int MAX_IN_FLIGHT = 64;
+
+    private static final Semaphore permits = new Semaphore(MAX_IN_FLIGHT);
+    private static ExecutorService executor;
+
+    private AuthExecutor() {
+    }
+
+    /**
+     * 在工作线程上执行验证任务
+     * 正在执行的任务达到上限时返回以 {@link RejectedExecutionException} 失败的 future
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("too many pending authentications"));
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(task, executor())
+                .whenComplete((result, error) -> permits.release());
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 在工作线程上执行已由调用方限制并发数的任务，不占用 submit 的名额
+     *
+     * @throws RejectedExecutionException 工作线程池正在停止
+     */
+    public static void execute(Runnable task) {
+        executor().execute(task);
+    }
+
+    /**
+     * 服务器关闭时停止工作线程，下次提交任务时会重新创建
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+        return executor;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21+ 才有的 API，通过反射调用以保持 Java 17 兼容
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService virtual = (ExecutorService) factory.invoke(null);
+            LoginMod.LOGGER.info("登录验证使用虚拟线程");
+            return virtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            LoginMod.LOGGER.info("登录验证使用 {} 个平台线程", threads);
+            return Executors.newFixedThreadPool(threads, new AuthThreadFactory());
+        }
+    }
+
+    private static final class AuthThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "LoginMod-Auth-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.hzcu.loginmod.auth;
+
+/**
+ * 凭据验证结果
+ */
+public enum AuthResult {
+    SUCCESS,
+    WRONG_PASSWORD,
+    UNKNOWN_USER,
+    // 认证服务超时、出错或熔断，与密码是否正确无关
+    UNAVAILABLE
+}
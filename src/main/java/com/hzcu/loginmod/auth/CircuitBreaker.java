@@ -0,0 +1,57 @@
+package com.hzcu.loginmod.auth;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 简单的熔断器
+ *
+ * 连续失败达到阈值后断开，断开期间直接拒绝请求；
+ * 冷却时间过后只放行一个探测请求，成功则恢复，失败则重新断开。
+ */
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    // 断开截止时间，0 表示闭合
+    private volatile long openUntil;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * 检查是否允许发出请求
+     */
+    public boolean allowRequest() {
+        long until = openUntil;
+        if (until == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < until) {
+            return false;
+        }
+        // 半开状态：只允许一个探测请求
+        return probeInFlight.compareAndSet(false, true);
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        openUntil = 0;
+        probeInFlight.set(false);
+    }
+
+    public void recordFailure() {
+        if (probeInFlight.compareAndSet(true, false)
+                || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    public boolean isOpen() {
+        return openUntil != 0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.hzcu.loginmod.auth;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只读的用户凭据索引文件
+ *
+ * 文件由 {@link com.hzcu.loginmod.tool.CredentialIndexBuilder} 从 userdata.csv 预先生成，
+ * 记录按用户名的 UTF-8 字节序排序且定长，运行时通过内存映射做二分查找，
+ * 启动时无需解析，同一台机器上的多个服务器进程共享页缓存。
+ *
+ * 文件格式（大端）：
+ * <pre>
+ * int magic | int version | int count | int keyWidth | int valueWidth
+ * count * (key[keyWidth] value[valueWidth])   不足部分以 0 填充
+ * </pre>
+ */
+public final class CredentialIndex {
+    private static final int MAGIC = 0x485A4958; // "HZIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int keyWidth;
+    private final int valueWidth;
+    private final int recordWidth;
+
+    private CredentialIndex(ByteBuffer buffer, int count, int keyWidth, int valueWidth) {
+        this.buffer = buffer;
+        this.count = count;
+        this.keyWidth = keyWidth;
+        this.valueWidth = valueWidth;
+        this.recordWidth = keyWidth + valueWidth;
+    }
+
+    /**
+     * 以只读方式映射索引文件
+     */
+    public static CredentialIndex open(Path indexPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("索引文件大小无效: " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("不是有效的凭据索引文件: " + indexPath);
+            }
+            int version = mapped.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("不支持的凭据索引版本: " + version);
+            }
+            int count = mapped.getInt(8);
+            int keyWidth = mapped.getInt(12);
+            int valueWidth = mapped.getInt(16);
+            if (count < 0 || keyWidth <= 0 || valueWidth <= 0
+                    || HEADER_SIZE + (long) count * (keyWidth + valueWidth) != size) {
+                throw new IOException("凭据索引文件已损坏: " + indexPath);
+            }
+            return new CredentialIndex(mapped, count, keyWidth, valueWidth);
+        }
+    }
+
+    /**
+     * 查找用户名对应的密码，不存在时返回 null
+     * 只使用绝对位置读取，可被多个线程同时调用
+     */
+    public String lookup(String username) {
+        byte[] key = username.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > keyWidth) {
+            return null;
+        }
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_SIZE + mid * recordWidth;
+            int cmp = compareKey(offset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readValue(offset + keyWidth);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 索引中的用户数量
+     */
+    public int size() {
+        return count;
+    }
+
+    private int compareKey(int offset, byte[] key) {
+        for (int i = 0; i < keyWidth; i++) {
+            int a = buffer.get(offset + i) & 0xFF;
+            int b = i < key.length ? key[i] & 0xFF : 0;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    private String readValue(int offset) {
+        int length = 0;
+        while (length < valueWidth && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = buffer.get(offset + i);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 将用户凭据写成索引文件（先写临时文件再替换，避免正在映射的进程读到半个文件）
+     */
+    public static void write(Map<String, String> credentials, Path indexPath) throws IOException {
+        List<byte[][]> records = new ArrayList<>(credentials.size());
+        int keyWidth = 1;
+        int valueWidth = 1;
+        for (Map.Entry<String, String> entry : credentials.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            keyWidth = Math.max(keyWidth, key.length);
+            valueWidth = Math.max(valueWidth, value.length);
+            records.add(new byte[][]{key, value});
+        }
+        records.sort((a, b) -> Arrays.compareUnsigned(a[0], b[0]));
+
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tempPath);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            out.writeInt(keyWidth);
+            out.writeInt(valueWidth);
+            for (byte[][] record : records) {
+                writePadded(out, record[0], keyWidth);
+                writePadded(out, record[1], valueWidth);
+            }
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writePadded(DataOutputStream out, byte[] bytes, int width) throws IOException {
+        out.write(bytes);
+        for (int i = bytes.length; i < width; i++) {
+            out.write(0);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于本地 userdata.csv（以及可选的预编译索引 userdata.idx）的认证后端
+ *
+ * 文件中的数据保存在一个不可变快照里，重新加载时先在局部完成解析，再一次性替换快照，
+ * 加载期间的 /login 始终看到完整的旧数据或完整的新数据。
+ * 运行时新增的记录放在单独的表中，文件重新加载后已落盘的记录会从表中移除。
+ * 运行时的新增和重新哈希只追加到 CSV 末尾，停服时合并重复的记录并重新生成索引。
+ */
+public class CsvAuthBackend implements UserStore {
+    private static final UserSnapshot EMPTY = new UserSnapshot(Map.of(), null);
+
+    private final Path csvPath;
+    private final Path indexPath;
+
+    // 最近一次从文件加载的数据，整体替换
+    private volatile UserSnapshot snapshot = EMPTY;
+
+    // 上次加载之后新增或重新哈希的记录，验证线程会并发读取
+    private final Map<String, String> additions = new ConcurrentHashMap<>();
+
+    // 新增和重新哈希的记录都通过它批量追加到 CSV
+    private final UserDataWriter writer;
+    // 本次运行是否向 CSV 追加过记录，停服时据此决定是否压缩文件
+    private final AtomicBoolean appended = new AtomicBoolean();
+
+    /**
+     * 从文件加载的用户数据：CSV 解析结果，或预编译的只读索引（此时 users 为空）
+     */
+    private record UserSnapshot(Map<String, String> users, CredentialIndex index) {
+
+        private String find(String username) {
+            String password = users.get(username);
+            if (password == null && index != null) {
+                password = index.lookup(username);
+            }
+            return password;
+        }
+
+        private int size() {
+            return users.size() + (index != null ? index.size() : 0);
+        }
+    }
+
+    public CsvAuthBackend(Path csvPath, Path indexPath) {
+        this.csvPath = csvPath;
+        this.indexPath = indexPath;
+        this.writer = new UserDataWriter(csvPath);
+    }
+
+    @Override
+    public String name() {
+        return "csv";
+    }
+
+    /**
+     * 加载用户数据，优先使用预编译索引，否则解析 CSV 文件
+     * 可以在任意线程调用，解析完成后一次性替换快照并记录变化
+     */
+    @Override
+    public synchronized void load() {
+        UserSnapshot previous = snapshot;
+        UserSnapshot loaded = loadUsersFromIndex();
+        if (loaded == null) {
+            loaded = loadUsersFromCSV();
+        }
+        snapshot = loaded;
+
+        // 已经写入文件的运行时记录现在由快照提供
+        UserSnapshot current = loaded;
+        additions.entrySet().removeIf(entry -> entry.getValue().equals(current.find(entry.getKey())));
+
+        if (previous == EMPTY) {
+            LoginMod.LOGGER.info("成功加载了 {} 个用户账号", loaded.size());
+        } else {
+            logDiff(previous, loaded);
+        }
+    }
+
+    /**
+     * 检查 CSV 文件自上次由本进程写入后是否未被外部修改
+     */
+    public boolean isOwnWrite() {
+        return writer.isLastWrite();
+    }
+
+    /**
+     * 记录两次加载之间的变化（新增、删除、修改的账号数）
+     */
+    private void logDiff(UserSnapshot previous, UserSnapshot loaded) {
+        if (previous.index != null || loaded.index != null) {
+            // 索引不便逐条比较，只记录总数
+            LoginMod.LOGGER.info("用户数据已重新加载: {} -> {} 个账号", previous.size(), loaded.size());
+            return;
+        }
+
+        int added = 0;
+        int changed = 0;
+        for (Map.Entry<String, String> entry : loaded.users.entrySet()) {
+            String old = previous.users.get(entry.getKey());
+            if (old == null) {
+                added++;
+            } else if (!old.equals(entry.getValue())) {
+                changed++;
+            }
+        }
+        int removed = previous.users.size() - (loaded.users.size() - added);
+        LoginMod.LOGGER.info("用户数据已重新加载: +{} -{} ~{}，共 {} 个账号", added, removed, changed, loaded.size());
+    }
+
+    /**
+     * 从预编译的索引文件加载用户数据
+     * 索引比 CSV 旧时（例如上次运行追加记录后没有正常停服）先从 CSV 重新生成索引，失败时回退到解析 CSV
+     */
+    private UserSnapshot loadUsersFromIndex() {
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+
+        try {
+            if (Files.exists(csvPath)
+                    && Files.getLastModifiedTime(indexPath).compareTo(Files.getLastModifiedTime(csvPath)) < 0) {
+                LoginMod.LOGGER.warn("索引文件 {} 比 {} 旧，正在重新生成", indexPath, csvPath);
+                CredentialIndex.write(UserDataCsv.read(csvPath), indexPath);
+            }
+            CredentialIndex index = CredentialIndex.open(indexPath);
+            LoginMod.LOGGER.info("成功映射索引文件 {}，包含 {} 个用户账号", indexPath, index.size());
+            return new UserSnapshot(Map.of(), index);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("读取索引文件 {} 时出错: {}", indexPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从 CSV 文件加载用户数据
+     */
+    private UserSnapshot loadUsersFromCSV() {
+        if (!Files.exists(csvPath)) {
+            LoginMod.LOGGER.error("用户数据文件 {} 不存在！", csvPath);
+            LoginMod.LOGGER.warn("使用默认测试账号");
+            // 如果文件不存在，使用默认测试账号
+            return defaultUsers();
+        }
+
+        try {
+            return new UserSnapshot(Map.copyOf(UserDataCsv.read(csvPath)), null);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("读取用户数据文件 {} 时出错: {}", csvPath, e.getMessage());
+            LoginMod.LOGGER.warn("使用默认测试账号");
+            // 如果读取失败，使用默认测试账号
+            return defaultUsers();
+        }
+    }
+
+    private static UserSnapshot defaultUsers() {
+        return new UserSnapshot(Map.of(
+            "admin", "admin123",
+            "player1", "password1",
+            "player2", "password2"), null);
+    }
+
+    /**
+     * 获取当前加载的用户数量
+     */
+    @Override
+    public int getUserCount() {
+        UserSnapshot current = snapshot;
+        int count = current.size();
+        for (String username : additions.keySet()) {
+            if (current.find(username) == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找用户名对应的密码记录，不存在时返回 null
+     */
+    @Override
+    public String findPassword(String username) {
+        String password = additions.get(username);
+        return password != null ? password : snapshot.find(username);
+    }
+
+    /**
+     * 用户数据都在内存中，直接在调用线程上查找
+     */
+    @Override
+    public CompletableFuture<Set<String>> findExisting(Collection<String> usernames) {
+        Set<String> existing = new HashSet<>();
+        for (String username : usernames) {
+            if (findPassword(username) != null) {
+                existing.add(username);
+            }
+        }
+        return CompletableFuture.completedFuture(existing);
+    }
+
+    /**
+     * 验证用户名和密码后六位（在工作线程上执行）
+     * 旧格式的明文记录或迭代次数过低的哈希会在验证成功后重新哈希并保存
+     */
+    @Override
+    public AuthResult authenticate(String username, String password) {
+        String stored = findPassword(username);
+        if (stored == null) {
+            return AuthResult.UNKNOWN_USER;
+        }
+
+        if (!PasswordHasher.verify(password, stored)) {
+            return AuthResult.WRONG_PASSWORD;
+        }
+
+        if (PasswordHasher.needsRehash(stored)) {
+            String rehashed = PasswordHasher.hash(password, PasswordHasher.getTargetIterations());
+            additions.put(username, rehashed);
+            // 追加的新记录在下次加载时覆盖旧记录
+            appendUsers(Map.of(username, rehashed));
+        }
+        return AuthResult.SUCCESS;
+    }
+
+    /**
+     * 只在内存中添加或覆盖用户
+     */
+    @Override
+    public void putUser(String username, String stored) {
+        additions.put(username, stored);
+    }
+
+    /**
+     * 只在内存中批量添加用户
+     */
+    @Override
+    public void putUsers(Map<String, String> users) {
+        additions.putAll(users);
+    }
+
+    /**
+     * 从内存中移除用户（写入文件失败时回滚用）
+     */
+    @Override
+    public void removeUser(String username) {
+        additions.remove(username);
+    }
+
+    /**
+     * 从内存中批量移除用户（写入文件失败时回滚用）
+     */
+    @Override
+    public void removeUsers(Collection<String> usernames) {
+        additions.keySet().removeAll(usernames);
+    }
+
+    /**
+     * 将用户追加到 CSV 文件（主线程和验证线程都会调用）
+     * 写入在后台批量进行，返回的 future 在记录落盘后以 true 完成，失败时以 false 完成
+     */
+    @Override
+    public CompletableFuture<Boolean> appendUsers(Map<String, String> users) {
+        appended.set(true);
+        return writer.append(users);
+    }
+
+    /**
+     * 写完尚未落盘的记录，本次运行追加过记录时压缩 CSV 并重新生成索引（服务器停止时调用）
+     */
+    @Override
+    public void flush() {
+        writer.close();
+        if (appended.getAndSet(false)) {
+            compact();
+        }
+    }
+
+    /**
+     * 合并 CSV 中同一用户的多条记录（只保留最后一条），存在索引文件时一并重新生成，
+     * 使索引重新比 CSV 新，下次启动可以直接映射
+     */
+    private void compact() {
+        if (!Files.exists(csvPath)) {
+            return;
+        }
+        try {
+            Map<String, String> users = UserDataCsv.read(csvPath);
+            UserDataCsv.write(csvPath, users);
+            if (Files.exists(indexPath)) {
+                CredentialIndex.write(users, indexPath);
+            }
+            LoginMod.LOGGER.info("已压缩 {}，共 {} 个账号", csvPath, users.size());
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("压缩用户数据文件 {} 时出错: {}", csvPath, e.getMessage());
+        }
+    }
+}
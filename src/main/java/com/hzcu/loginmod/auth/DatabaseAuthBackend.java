@@ -0,0 +1,232 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.db.LoginDatabase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于内嵌数据库的认证后端
+ *
+ * 每次查询只按主键读取一行，内存中不保存全部用户；尚未写入数据库的新增记录放在单独的表中，
+ * 由一个后台线程按提交顺序在事务中批量写入。首次使用时把 userdata.csv 一次性导入数据库。
+ */
+public class DatabaseAuthBackend implements UserStore {
+    private static final String CSV_MIGRATION = "userdata.csv";
+
+    private final LoginDatabase database;
+    private final Path csvPath;
+
+    // 已放入内存但尚未写入数据库（或写入失败待回滚）的记录
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    private volatile int userCount;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LoginMod-UserDatabase");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DatabaseAuthBackend(LoginDatabase database, Path csvPath) {
+        this.database = database;
+        this.csvPath = csvPath;
+    }
+
+    @Override
+    public String name() {
+        return "database";
+    }
+
+    /**
+     * 首次加载时导入 userdata.csv，之后只刷新用户数量
+     */
+    @Override
+    public synchronized void load() {
+        try {
+            if (!database.isMigrated(CSV_MIGRATION) && Files.exists(csvPath)) {
+                migrateFromCsv();
+            }
+            userCount = database.countUsers();
+            LoginMod.LOGGER.info("用户数据库中有 {} 个用户账号", userCount);
+        } catch (SQLException e) {
+            LoginMod.LOGGER.error("读取用户数据库时出错: {}", e.getMessage());
+        }
+    }
+
+    private void migrateFromCsv() throws SQLException {
+        Map<String, String> users;
+        try {
+            users = UserDataCsv.read(csvPath);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("读取用户数据文件 {} 时出错，暂不导入: {}", csvPath, e.getMessage());
+            return;
+        }
+        long start = System.nanoTime();
+        database.upsertUsers(users);
+        database.markMigrated(CSV_MIGRATION);
+        LoginMod.LOGGER.info("已将 {} 中的 {} 个用户导入数据库，耗时 {} ms；此后不再读取该文件",
+            csvPath, users.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 数据库中的用户数量，每批写入后重新读取
+     * 内存表中的记录可能是对已有用户的重新哈希或覆盖，不计入，新用户在写入完成后即被计入
+     */
+    @Override
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * 查找用户名对应的密码记录，不存在时返回 null
+     *
+     * @throws IllegalStateException 数据库不可用
+     */
+    @Override
+    public String findPassword(String username) {
+        try {
+            return lookup(username);
+        } catch (SQLException e) {
+            throw new IllegalStateException("用户数据库不可用: " + e.getMessage(), e);
+        }
+    }
+
+    private String lookup(String username) throws SQLException {
+        String password = pending.get(username);
+        return password != null ? password : database.findPassword(username);
+    }
+
+    /**
+     * 在写入线程上执行，排在之前提交的写入之后，不会占用主线程
+     */
+    @Override
+    public CompletableFuture<Set<String>> findExisting(Collection<String> usernames) {
+        List<String> batch = List.copyOf(usernames);
+        CompletableFuture<Set<String>> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                Set<String> existing = new HashSet<>();
+                List<String> remaining = new ArrayList<>();
+                for (String username : batch) {
+                    if (pending.containsKey(username)) {
+                        existing.add(username);
+                    } else {
+                        remaining.add(username);
+                    }
+                }
+                try {
+                    existing.addAll(database.findExisting(remaining));
+                    result.complete(existing);
+                } catch (SQLException e) {
+                    LoginMod.LOGGER.error("批量查询用户时数据库出错: {}", e.getMessage());
+                    result.completeExceptionally(new IllegalStateException("用户数据库不可用: " + e.getMessage(), e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("用户数据库已关闭", e));
+        }
+        return result;
+    }
+
+    /**
+     * 验证用户名和密码后六位（在工作线程上执行）
+     * 旧格式的明文记录或迭代次数过低的哈希会在验证成功后重新哈希并保存
+     */
+    @Override
+    public AuthResult authenticate(String username, String password) {
+        String stored;
+        try {
+            stored = lookup(username);
+        } catch (SQLException e) {
+            LoginMod.LOGGER.error("查询用户 {} 时数据库出错: {}", username, e.getMessage());
+            return AuthResult.UNAVAILABLE;
+        }
+        if (stored == null) {
+            return AuthResult.UNKNOWN_USER;
+        }
+
+        if (!PasswordHasher.verify(password, stored)) {
+            return AuthResult.WRONG_PASSWORD;
+        }
+
+        if (PasswordHasher.needsRehash(stored)) {
+            String rehashed = PasswordHasher.hash(password, PasswordHasher.getTargetIterations());
+            pending.put(username, rehashed);
+            appendUsers(Map.of(username, rehashed));
+        }
+        return AuthResult.SUCCESS;
+    }
+
+    @Override
+    public void putUser(String username, String stored) {
+        pending.put(username, stored);
+    }
+
+    @Override
+    public void putUsers(Map<String, String> users) {
+        pending.putAll(users);
+    }
+
+    @Override
+    public void removeUser(String username) {
+        pending.remove(username);
+    }
+
+    @Override
+    public void removeUsers(Collection<String> usernames) {
+        pending.keySet().removeAll(usernames);
+    }
+
+    /**
+     * 在后台线程上以一个事务写入数据库，成功后从内存表中移除
+     */
+    @Override
+    public CompletableFuture<Boolean> appendUsers(Map<String, String> users) {
+        Map<String, String> batch = Map.copyOf(users);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    database.upsertUsers(batch);
+                    userCount = database.countUsers();
+                    // 写入期间可能又被修改，只移除与已写入内容相同的记录
+                    batch.forEach(pending::remove);
+                    result.complete(true);
+                } catch (SQLException e) {
+                    LoginMod.LOGGER.error("写入用户数据库时出错: {}", e.getMessage());
+                    result.complete(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.complete(false);
+        }
+        return result;
+    }
+
+    @Override
+    public void flush() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                LoginMod.LOGGER.warn("用户数据库写入未在停服前全部完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.hzcu.loginmod.auth;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 调用 HZCU 统一身份认证（CA）接口的认证后端
+ *
+ * 以表单形式 POST username 和 password 到配置的地址：
+ * 200 且返回 {"success": true} 表示成功，{"success": false} 或 401/403 表示密码错误，404 表示用户不存在，
+ * 其他状态码、超时和网络错误视为服务不可用并计入熔断器。
+ */
+public class HzcuCaAuthBackend implements AuthBackend {
+    private final URI endpoint;
+    private final Duration requestTimeout;
+    private final long slowCallMillis;
+    private final HttpClient client;
+    private final Semaphore inFlight;
+    private final CircuitBreaker breaker;
+
+    public HzcuCaAuthBackend(LoginSettings settings) {
+        this.endpoint = URI.create(settings.getCaEndpoint());
+        this.requestTimeout = Duration.ofMillis(settings.getCaRequestTimeoutMillis());
+        this.slowCallMillis = settings.getCaSlowCallMillis();
+        // HttpClient 内部维护连接池，所有请求共用一个实例
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(settings.getCaConnectTimeoutMillis()))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+        this.inFlight = new Semaphore(Math.max(1, settings.getCaMaxInFlight()));
+        this.breaker = new CircuitBreaker(settings.getCaBreakerFailureThreshold(), settings.getCaBreakerOpenMillis());
+    }
+
+    @Override
+    public String name() {
+        return "ca";
+    }
+
+    @Override
+    public AuthResult authenticate(String username, String password) {
+        // 并发请求已满或熔断时立即失败，不再排队等待 CA
+        // 先取得并发名额再询问熔断器，半开状态的探测名额只在确实发出请求时占用
+        if (!inFlight.tryAcquire()) {
+            return AuthResult.UNAVAILABLE;
+        }
+        try {
+            if (!breaker.allowRequest()) {
+                return AuthResult.UNAVAILABLE;
+            }
+            return sendAndRecord(username, password);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * 发出请求并把结果计入熔断器
+     * 任何退出路径（包括未预期的异常）都会记录一次成功或失败，半开状态的探测名额一定会被释放
+     */
+    private AuthResult sendAndRecord(String username, String password) {
+        boolean failed = true;
+        long start = System.nanoTime();
+        try {
+            AuthResult result = send(username, password);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            failed = result == AuthResult.UNAVAILABLE || (slowCallMillis > 0 && elapsedMillis > slowCallMillis);
+            return result;
+        } catch (IOException e) {
+            LoginMod.LOGGER.warn("HZCU CA request failed: {}", e.toString());
+            return AuthResult.UNAVAILABLE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return AuthResult.UNAVAILABLE;
+        } catch (RuntimeException e) {
+            LoginMod.LOGGER.warn("HZCU CA request failed unexpectedly", e);
+            return AuthResult.UNAVAILABLE;
+        } finally {
+            if (failed) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+        }
+    }
+
+    private AuthResult send(String username, String password) throws IOException, InterruptedException {
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+            + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .header("Accept", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(form))
+            .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        return switch (response.statusCode()) {
+            case 200 -> parseBody(response.body());
+            case 401, 403 -> AuthResult.WRONG_PASSWORD;
+            case 404 -> AuthResult.UNKNOWN_USER;
+            default -> {
+                LoginMod.LOGGER.warn("HZCU CA returned HTTP {}", response.statusCode());
+                yield AuthResult.UNAVAILABLE;
+            }
+        };
+    }
+
+    private static AuthResult parseBody(String body) {
+        try {
+            JsonElement element = JsonParser.parseString(body);
+            if (element.isJsonObject()) {
+                JsonObject json = element.getAsJsonObject();
+                if (json.has("success")) {
+                    return json.get("success").getAsBoolean() ? AuthResult.SUCCESS : AuthResult.WRONG_PASSWORD;
+                }
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            // 按无效响应处理
+        }
+        LoginMod.LOGGER.warn("HZCU CA returned an unexpected response body");
+        return AuthResult.UNAVAILABLE;
+    }
+}
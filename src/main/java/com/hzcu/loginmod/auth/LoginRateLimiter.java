@@ -0,0 +1,154 @@
+package com.hzcu.loginmod.auth;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 登录尝试限流器
+ *
+ * 每个键（玩家 UUID 或 IP）一个令牌桶，令牌用完后进入锁定期，连续被锁定时锁定时间翻倍。
+ * 桶状态是不可变对象，通过 CAS 更新，不加锁。
+ * 条目数量有上限：超出时先清除长时间未活动的条目，仍然超出则按最近活动时间淘汰最旧的条目。
+ */
+public class LoginRateLimiter<K> {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final long lockoutBaseNanos;
+    private final long lockoutMaxNanos;
+    private final int maxEntries;
+    private final long idleNanos;
+
+    private final Map<K, AtomicReference<State>> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * 限流判断结果
+     * shouldNotify 只在锁定开始时为 true，调用方据此只提示一次，避免每次被拒绝都发消息
+     */
+    public record Decision(boolean allowed, long retryAfterMillis, boolean shouldNotify) {
+        public static final Decision ALLOWED = new Decision(true, 0, false);
+    }
+
+    private record State(double tokens, long refilledAt, int strikes, boolean locked, long lockedUntil) {
+
+        // nanoTime 可能为负数，只能用差值比较
+        private boolean isLockedAt(long now) {
+            return locked && now - lockedUntil < 0;
+        }
+    }
+
+    public LoginRateLimiter(int capacity, double refillPerMinute, int lockoutBaseSeconds,
+                            int lockoutMaxSeconds, int maxEntries) {
+        this.capacity = Math.max(1, capacity);
+        this.tokensPerNano = Math.max(0, refillPerMinute) / (60.0 * NANOS_PER_SECOND);
+        this.lockoutBaseNanos = Math.max(1, lockoutBaseSeconds) * NANOS_PER_SECOND;
+        this.lockoutMaxNanos = Math.max(lockoutBaseSeconds, lockoutMaxSeconds) * NANOS_PER_SECOND;
+        this.maxEntries = Math.max(16, maxEntries);
+        // 桶完全回满后再保留一段时间，之后即可回收
+        double fillNanos = tokensPerNano > 0 ? this.capacity / tokensPerNano : 0;
+        this.idleNanos = (long) Math.min(Long.MAX_VALUE / 4, Math.max(fillNanos, this.lockoutMaxNanos));
+    }
+
+    /**
+     * 尝试消耗一个令牌
+     */
+    public Decision tryAcquire(K key) {
+        long now = System.nanoTime();
+        AtomicReference<State> ref = buckets.get(key);
+        if (ref == null) {
+            if (buckets.size() >= maxEntries) {
+                evict(now);
+            }
+            ref = buckets.computeIfAbsent(key, k -> new AtomicReference<>(new State(capacity, now, 0, false, 0)));
+        }
+
+        while (true) {
+            State current = ref.get();
+            if (current.isLockedAt(now)) {
+                return new Decision(false, (current.lockedUntil - now) / 1_000_000, false);
+            }
+
+            double tokens = Math.min(capacity, current.tokens + (now - current.refilledAt) * tokensPerNano);
+            // 桶已回满说明一段时间内没有滥用，清零锁定次数
+            int strikes = tokens >= capacity ? 0 : current.strikes;
+
+            if (tokens >= 1) {
+                if (ref.compareAndSet(current, new State(tokens - 1, now, strikes, false, 0))) {
+                    return Decision.ALLOWED;
+                }
+            } else {
+                int nextStrikes = strikes + 1;
+                long lockout = lockoutBaseNanos;
+                for (int i = 1; i < nextStrikes && lockout < lockoutMaxNanos; i++) {
+                    lockout *= 2;
+                }
+                lockout = Math.min(lockoutMaxNanos, lockout);
+                if (ref.compareAndSet(current, new State(tokens, now, nextStrikes, true, now + lockout))) {
+                    return new Decision(false, lockout / 1_000_000, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 只检查是否处于锁定期，不消耗令牌（用于只对失败计数的限流）
+     */
+    public Decision check(K key) {
+        AtomicReference<State> ref = buckets.get(key);
+        if (ref == null) {
+            return Decision.ALLOWED;
+        }
+        long now = System.nanoTime();
+        State current = ref.get();
+        if (current.isLockedAt(now)) {
+            return new Decision(false, (current.lockedUntil - now) / 1_000_000, false);
+        }
+        return Decision.ALLOWED;
+    }
+
+    /**
+     * 移除某个键的记录（例如登录成功后）
+     */
+    public void reset(K key) {
+        buckets.remove(key);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // 先清除闲置且未锁定的条目
+            buckets.entrySet().removeIf(entry -> {
+                State state = entry.getValue().get();
+                return !state.isLockedAt(now) && now - state.refilledAt > idleNanos;
+            });
+
+            // 仍然超出上限时淘汰最久未活动的条目，留出 10% 余量
+            int excess = buckets.size() - maxEntries * 9 / 10;
+            if (excess > 0) {
+                // 先取出时间快照再排序，避免排序过程中状态被并发修改
+                List<Map.Entry<K, Long>> entries = new ArrayList<>(buckets.size());
+                for (Map.Entry<K, AtomicReference<State>> entry : buckets.entrySet()) {
+                    entries.add(Map.entry(entry.getKey(), entry.getValue().get().refilledAt));
+                }
+                entries.sort(Map.Entry.comparingByValue());
+                for (int i = 0; i < excess && i < entries.size(); i++) {
+                    buckets.remove(entries.get(i).getKey());
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.hzcu.loginmod.auth;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * 登录密码的加盐慢哈希
+ *
+ * 只保存六位登录密码（证件号码后六位）的哈希，算法和迭代次数随每条记录保存：
+ * <pre>pbkdf2-sha256$迭代次数$盐(Base64)$哈希(Base64)</pre>
+ * 不带算法前缀的记录视为旧格式的明文证件号码。
+ */
+public final class PasswordHasher {
+    public static final String ALGORITHM_ID = "pbkdf2-sha256";
+    public static final int SECRET_LENGTH = 6;
+    public static final int DEFAULT_ITERATIONS = 100_000;
+    public static final int MIN_ITERATIONS = 10_000;
+    public static final int MAX_ITERATIONS = 10_000_000;
+
+    private static final String PREFIX = ALGORITHM_ID + "$";
+    private static final String JCA_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // 新哈希使用的迭代次数，由配置指定或启动时校准
+    private static volatile int targetIterations = DEFAULT_ITERATIONS;
+    // 低于该迭代次数的记录在登录成功后重新哈希，只由配置中固定的 hashIterations 决定，
+    // 不跟随每次启动的校准结果变化，避免同一账号在每次启动后被反复重新哈希
+    private static volatile int rehashFloor = MIN_ITERATIONS;
+
+    private PasswordHasher() {
+    }
+
+    public static int getTargetIterations() {
+        return targetIterations;
+    }
+
+    public static void setTargetIterations(int iterations) {
+        targetIterations = clampIterations(iterations);
+    }
+
+    public static int getRehashFloor() {
+        return rehashFloor;
+    }
+
+    public static void setRehashFloor(int iterations) {
+        rehashFloor = clampIterations(iterations);
+    }
+
+    /**
+     * 从完整证件号码取出登录用的后六位
+     */
+    public static String secretOf(String fullPassword) {
+        return fullPassword.length() >= SECRET_LENGTH
+            ? fullPassword.substring(fullPassword.length() - SECRET_LENGTH)
+            : fullPassword;
+    }
+
+    /**
+     * 检查存储的记录是否已是哈希格式
+     */
+    public static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    /**
+     * 使用随机盐计算哈希，返回可直接存储的记录
+     */
+    public static String hash(String secret, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(secret, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * 验证登录密码是否与存储的记录匹配，同时兼容旧格式的明文记录
+     * 耗时与迭代次数成正比，不能在主线程调用
+     */
+    public static boolean verify(String secret, String stored) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(
+                secretOf(stored).getBytes(StandardCharsets.UTF_8),
+                secret.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] salt = decoder.decode(parts[2]);
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(secret, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 检查记录是否需要在下次登录成功后重新哈希（旧格式或迭代次数低于固定的下限）
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < rehashFloor;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 测量本机的哈希耗时，返回单次验证不超过预算的最大迭代次数
+     */
+    public static int calibrate(long budgetMillis) {
+        int probe = MIN_ITERATIONS;
+        // 预热，避免把 JIT 编译时间算进去
+        for (int i = 0; i < 3; i++) {
+            pbkdf2("000000", new byte[SALT_BYTES], probe);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            pbkdf2("000000", new byte[SALT_BYTES], probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double nanosPerIteration = (double) best / probe;
+        long iterations = (long) (budgetMillis * 1_000_000L / nanosPerIteration);
+        // 取整到千位，便于在配置中阅读
+        return clampIterations((int) Math.min(Integer.MAX_VALUE, iterations / 1000 * 1000));
+    }
+
+    private static int clampIterations(int iterations) {
+        return Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    private static byte[] pbkdf2(String secret, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(JCA_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(JCA_ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 会话恢复表
+ *
+ * 记住已登录玩家的 (UUID, IP, 账号)（登录时写入，在线期间定期刷新，离开时再刷新一次），
+ * 在有效期内从同一 IP 重新连接时无需再次登录。
+ * 只在服务器主线程修改；每次变化后由后台线程延迟保存（短时间内的多次变化合并为一次写盘），
+ * 服务器崩溃或被强制结束时最多丢失最后一秒的变化。以紧凑的二进制格式保存，启动时读回，过期条目批量清除。
+ */
+public final class SessionResumeStore {
+    public static final Path SESSION_FILE = Paths.get("config", "hzculogin-sessions.bin");
+    private static final int MAGIC = 0x485A5353; // "HZSS"
+    private static final int VERSION = 1;
+    private static final long EVICT_INTERVAL_MILLIS = 60_000;
+    private static final long SAVE_DELAY_MILLIS = 1000;
+
+    // 主线程修改，写入线程保存时读取
+    private static final Map<UUID, ResumeEntry> entries = new ConcurrentHashMap<>();
+    private static volatile long lastEviction;
+
+    // 会话文件的位置（由 load 指定），以及是否已经安排了一次保存
+    private static volatile Path sessionPath = SESSION_FILE;
+    private static final AtomicBoolean saveScheduled = new AtomicBoolean();
+    // 写文件之间互斥（后台保存和停服时的同步保存）
+    private static final Object FILE_LOCK = new Object();
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hzculogin-session-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SessionResumeStore() {
+    }
+
+    private record ResumeEntry(String ip, String account, long expiresAt) {
+    }
+
+    /**
+     * 写入或刷新已登录玩家的会话
+     */
+    public static void remember(UUID playerUUID, String ip, String account, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        entries.put(playerUUID, new ResumeEntry(ip, account, now + ttlMillis));
+        if (now - lastEviction > EVICT_INTERVAL_MILLIS) {
+            evictExpired(now);
+        }
+        scheduleSave();
+    }
+
+    /**
+     * 尝试恢复会话，成功时返回绑定的账号并移除该条目，否则返回 null
+     */
+    public static String tryResume(UUID playerUUID, String ip) {
+        ResumeEntry entry = entries.remove(playerUUID);
+        if (entry == null) {
+            return null;
+        }
+        scheduleSave();
+        if (entry.expiresAt < System.currentTimeMillis() || !entry.ip.equals(ip)) {
+            return null;
+        }
+        return entry.account;
+    }
+
+    /**
+     * 安排一次延迟保存，延迟期间的多次变化合并为一次写盘
+     */
+    private static void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            WRITER.schedule(() -> {
+                // 先清除标记再保存，保存期间的新变化会安排下一次保存
+                saveScheduled.set(false);
+                save(sessionPath);
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 批量移除过期条目
+     */
+    private static void evictExpired(long now) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+        lastEviction = now;
+        if (entries.size() != before) {
+            LoginMod.LOGGER.debug("Evicted {} expired resumable sessions", before - entries.size());
+        }
+    }
+
+    /**
+     * 从文件读取会话表
+     */
+    public static void load(Path path) {
+        sessionPath = path;
+        entries.clear();
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LoginMod.LOGGER.warn("会话文件 {} 格式无效，已忽略", path);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID playerUUID = new UUID(in.readLong(), in.readLong());
+                long expiresAt = in.readLong();
+                String ip = in.readUTF();
+                String account = in.readUTF();
+                if (expiresAt >= now) {
+                    entries.put(playerUUID, new ResumeEntry(ip, account, expiresAt));
+                }
+            }
+            lastEviction = now;
+            LoginMod.LOGGER.info("恢复了 {} 个可续用的登录会话", entries.size());
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("读取会话文件 {} 时出错: {}", path, e.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * 清除过期条目后保存会话表（写入线程和停服时的主线程都会调用）
+     */
+    public static void save(Path path) {
+        synchronized (FILE_LOCK) {
+            writeFile(path);
+        }
+    }
+
+    private static void writeFile(Path path) {
+        long now = System.currentTimeMillis();
+        // 主线程可能同时在修改，先取一份副本，保证写出的条目数与内容一致
+        Map<UUID, ResumeEntry> current = new HashMap<>(entries);
+        current.values().removeIf(entry -> entry.expiresAt < now);
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(current.size());
+            for (Map.Entry<UUID, ResumeEntry> entry : current.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeLong(entry.getValue().expiresAt);
+                out.writeUTF(entry.getValue().ip);
+                out.writeUTF(entry.getValue().account);
+            }
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("保存会话文件 {} 时出错: {}", path, e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("保存会话文件 {} 时出错: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hzcu.loginmod.auth;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * userdata.csv 解析工具
+ * 格式为 "username,password"，第一行为标题行
+ */
+public final class UserDataCsv {
+    public static final String HEADER = "username,password";
+
+    private UserDataCsv() {
+    }
+
+    /**
+     * 读取整个 CSV 文件，同一用户名出现多次时以最后一次为准（保留第一次出现的位置）
+     */
+    public static Map<String, String> read(Path csvPath) throws IOException {
+        Map<String, String> credentials = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
+            String line;
+            boolean isFirstLine = true;
+
+            while ((line = reader.readLine()) != null) {
+                // 跳过标题行
+                if (isFirstLine) {
+                    isFirstLine = false;
+                    continue;
+                }
+
+                // 解析 CSV 行
+                String[] parts = line.split(",");
+                if (parts.length >= 2) {
+                    String username = parts[0].trim();
+                    String password = parts[1].trim();
+
+                    if (!username.isEmpty() && !password.isEmpty()) {
+                        credentials.put(username, password);
+                    }
+                }
+            }
+        }
+        return credentials;
+    }
+
+    /**
+     * 用给定的记录重写整个 CSV 文件（写入临时文件、fsync 后原子替换）
+     */
+    public static void write(Path csvPath, Map<String, String> credentials) throws IOException {
+        Path tempPath = csvPath.resolveSibling(csvPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            writer.write(HEADER);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : credentials.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(',');
+                writer.write(entry.getValue());
+                writer.newLine();
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(tempPath, csvPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, csvPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
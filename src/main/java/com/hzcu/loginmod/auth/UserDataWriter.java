@@ -0,0 +1,189 @@
+package com.hzcu.loginmod.auth;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * userdata.csv 的批量追加写入器
+ *
+ * 所有追加请求先进入队列，由单个写入线程取出当前排队的全部请求，
+ * 打开一次文件、一次写入并 fsync 后再逐个完成对应的 future（组提交）。
+ * 写入进行期间到达的请求会合并到下一次写入，调用方不会阻塞。
+ */
+public class UserDataWriter {
+    private final Path csvPath;
+    private final Queue<Batch> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private ExecutorService executor;
+
+    // 本进程最后一次写入后文件的大小和修改时间，用于识别文件监视收到的是自己的写入
+    private volatile FileState lastWrite;
+
+    private record Batch(List<String> lines, CompletableFuture<Boolean> result) {
+    }
+
+    private record FileState(long size, FileTime modified) {
+    }
+
+    public UserDataWriter(Path csvPath) {
+        this.csvPath = csvPath;
+    }
+
+    /**
+     * 追加一批用户记录，写入并落盘后 future 以 true 完成，失败时以 false 完成
+     */
+    public CompletableFuture<Boolean> append(Map<String, String> users) {
+        List<String> lines = new ArrayList<>(users.size());
+        for (Map.Entry<String, String> entry : users.entrySet()) {
+            lines.add(entry.getKey() + "," + entry.getValue());
+        }
+        Batch batch = new Batch(lines, new CompletableFuture<>());
+        queue.add(batch);
+        scheduleDrain();
+        return batch.result;
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor().execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            LoginMod.LOGGER.error("用户数据写入线程已停止，无法写入 {}", csvPath);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                List<Batch> group = new ArrayList<>();
+                Batch batch;
+                while ((batch = queue.poll()) != null) {
+                    group.add(batch);
+                }
+                if (group.isEmpty()) {
+                    break;
+                }
+
+                boolean written = write(group);
+                for (Batch pending : group) {
+                    pending.result.complete(written);
+                }
+            }
+        } finally {
+            draining.set(false);
+            // 释放标记之后入队的请求需要重新安排写入
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * 一次性写入一组请求的所有记录，文件为空时先写标题行
+     */
+    private boolean write(List<Batch> group) {
+        StringBuilder content = new StringBuilder();
+        int records = 0;
+        for (Batch batch : group) {
+            for (String line : batch.lines) {
+                content.append(line).append(System.lineSeparator());
+                records++;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (channel.size() == 0) {
+                content.insert(0, UserDataCsv.HEADER + System.lineSeparator());
+            }
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(content.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            LoginMod.LOGGER.error("Failed to append {} users to {}: {}", records, csvPath, e.getMessage());
+            return false;
+        }
+
+        try {
+            lastWrite = new FileState(Files.size(csvPath), Files.getLastModifiedTime(csvPath));
+        } catch (IOException e) {
+            lastWrite = null;
+        }
+
+        LoginMod.LOGGER.info("Appended {} users to {} ({} requests)", records, csvPath, group.size());
+        return true;
+    }
+
+    /**
+     * 检查文件当前的状态是否与本进程最后一次写入后一致（即之后没有被外部修改）
+     */
+    public boolean isLastWrite() {
+        FileState state = lastWrite;
+        if (state == null) {
+            return false;
+        }
+        try {
+            return Files.size(csvPath) == state.size && Files.getLastModifiedTime(csvPath).equals(state.modified);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 写完队列中剩余的请求后停止写入线程（服务器停止时调用），下次追加时会重新创建
+     */
+    public void close() {
+        ExecutorService stopping;
+        synchronized (this) {
+            stopping = executor;
+            executor = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        // 在锁外等待，写入线程结束时可能还要安排下一次写入
+        stopping.shutdown();
+        try {
+            if (!stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+                LoginMod.LOGGER.warn("等待用户数据写入超时，部分记录可能未保存");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "LoginMod-UserData-Writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,192 @@
+package com.hzcu.loginmod.auth;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 批量导入用户名单
+ *
+ * 在独立线程上逐行读取 CSV，校验格式并去除文件内重复的用户，读完后用一次批量查询去除已存在的用户，
+ * 明文密码按 /adduser 的规则只保存后六位的哈希，哈希计算分块交给一个小线程池并行执行。
+ * 导入结果只在内存中返回，由调用方在主线程上一次性合并并写入文件。同一时间只允许一个导入任务。
+ */
+public final class UserImporter {
+    // 与 /login 的 word 参数允许的字符一致，否则导入的账号无法登录
+    private static final Pattern USERNAME = Pattern.compile("[0-9A-Za-z_.+-]+");
+    private static final int CHUNK_SIZE = 256;
+    private static final long PROGRESS_INTERVAL_MILLIS = 5_000;
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private UserImporter() {
+    }
+
+    /**
+     * 导入进度回调（在导入线程上调用）
+     */
+    public interface Progress {
+        void update(int hashed, int total);
+    }
+
+    /**
+     * 导入结果
+     *
+     * @param rows       读取的数据行数（不含标题行和空行）
+     * @param invalid    格式无效的行数
+     * @param duplicates 文件内重复的用户名数
+     * @param existing   已存在而跳过的用户数
+     * @param users      待合并的新用户（用户名 → 密码哈希），保持文件中的顺序
+     */
+    public record Result(int rows, int invalid, int duplicates, int existing, Map<String, String> users) {
+    }
+
+    /**
+     * 开始导入，已有导入任务在进行时返回以 {@link IllegalStateException} 失败的 future
+     *
+     * @param findExisting 找出已存在的用户名（见 {@link UserStore#findExisting}），在导入线程上调用一次
+     */
+    public static CompletableFuture<Result> start(Path file,
+                                                  Function<Collection<String>, CompletableFuture<Set<String>>> findExisting,
+                                                  Progress progress) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("an import is already running"));
+        }
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(run(file, findExisting, progress));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                running.set(false);
+            }
+        }, "LoginMod-Import");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static Result run(Path file, Function<Collection<String>, CompletableFuture<Set<String>>> findExisting,
+                              Progress progress)
+            throws IOException, InterruptedException, ExecutionException {
+        Map<String, String> rows = new LinkedHashMap<>();
+        int total = 0;
+        int invalid = 0;
+        int duplicates = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            boolean isFirstLine = true;
+            while ((line = reader.readLine()) != null) {
+                // 标题行可有可无
+                if (isFirstLine) {
+                    isFirstLine = false;
+                    if (line.trim().equalsIgnoreCase(UserDataCsv.HEADER)) {
+                        continue;
+                    }
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                total++;
+
+                String[] parts = line.split(",");
+                if (parts.length != 2) {
+                    invalid++;
+                    continue;
+                }
+                String username = parts[0].trim();
+                String password = parts[1].trim();
+                if (!USERNAME.matcher(username).matches() || password.isEmpty()) {
+                    invalid++;
+                    continue;
+                }
+                if (rows.containsKey(username)) {
+                    duplicates++;
+                    continue;
+                }
+                rows.put(username, password);
+            }
+        }
+
+        Set<String> existing;
+        try {
+            existing = findExisting.apply(rows.keySet()).get();
+        } catch (ExecutionException e) {
+            // 与"已有导入任务"的 IllegalStateException 区分开
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+        rows.keySet().removeAll(existing);
+
+        return new Result(total, invalid, duplicates, existing.size(), hashAll(rows, progress));
+    }
+
+    /**
+     * 并行计算密码哈希，已经是哈希格式的记录原样保留
+     */
+    private static Map<String, String> hashAll(Map<String, String> rows, Progress progress)
+            throws InterruptedException, ExecutionException {
+        List<String> usernames = new ArrayList<>(rows.keySet());
+        int iterations = PasswordHasher.getTargetIterations();
+        // 只占用一半的核心，导入期间服务器仍需正常运行
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LoginMod-Import-Hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<String[]>> chunks = new ArrayList<>();
+            for (int start = 0; start < usernames.size(); start += CHUNK_SIZE) {
+                List<String> chunk = usernames.subList(start, Math.min(usernames.size(), start + CHUNK_SIZE));
+                chunks.add(pool.submit(() -> {
+                    String[] hashes = new String[chunk.size()];
+                    for (int i = 0; i < hashes.length; i++) {
+                        String password = rows.get(chunk.get(i));
+                        hashes[i] = PasswordHasher.isHashed(password)
+                            ? password
+                            : PasswordHasher.hash(PasswordHasher.secretOf(password), iterations);
+                    }
+                    return hashes;
+                }));
+            }
+
+            Map<String, String> hashed = new LinkedHashMap<>(usernames.size() * 2);
+            long lastReport = System.currentTimeMillis();
+            int index = 0;
+            for (Future<String[]> chunk : chunks) {
+                for (String hash : chunk.get()) {
+                    hashed.put(usernames.get(index++), hash);
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= PROGRESS_INTERVAL_MILLIS && index < usernames.size()) {
+                    lastReport = now;
+                    progress.update(index, usernames.size());
+                }
+            }
+            return hashed;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hzcu.loginmod.auth;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地保存的用户数据：userdata.csv 或内嵌数据库
+ *
+ * 新增的记录先通过 putUser/putUsers 放入内存，再由 appendUsers 在后台持久化，
+ * 持久化失败时调用方用 removeUser/removeUsers 回滚。
+ */
+public interface UserStore extends AuthBackend {
+
+    /**
+     * 加载（或重新加载）用户数据，可以在任意线程调用
+     */
+    void load();
+
+    /**
+     * 获取当前的用户数量
+     */
+    int getUserCount();
+
+    /**
+     * 查找用户名对应的密码记录，不存在时返回 null
+     */
+    String findPassword(String username);
+
+    /**
+     * 在后台用一次批量查询找出其中已存在的用户名，返回的 future 不一定在主线程上完成
+     * 数据库不可用时 future 以 {@link IllegalStateException} 失败
+     */
+    CompletableFuture<Set<String>> findExisting(Collection<String> usernames);
+
+    /**
+     * 只在内存中添加或覆盖用户
+     */
+    void putUser(String username, String stored);
+
+    /**
+     * 只在内存中批量添加用户
+     */
+    void putUsers(Map<String, String> users);
+
+    /**
+     * 从内存中移除用户（持久化失败时回滚用）
+     */
+    void removeUser(String username);
+
+    /**
+     * 从内存中批量移除用户（持久化失败时回滚用）
+     */
+    void removeUsers(Collection<String> usernames);
+
+    /**
+     * 在后台持久化用户记录，同一用户名以最后一次写入为准
+     * 返回的 future 在记录落盘后以 true 完成，失败时以 false 完成
+     */
+    CompletableFuture<Boolean> appendUsers(Map<String, String> users);
+
+    /**
+     * 写完尚未落盘的记录（服务器停止时调用）
+     */
+    void flush();
+}
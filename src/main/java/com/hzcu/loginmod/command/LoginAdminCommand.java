@@ -0,0 +1,135 @@
+package com.hzcu.loginmod.command;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.auth.UserImporter;
+import com.hzcu.loginmod.auth.UserStore;
+import com.hzcu.loginmod.policy.Permission;
+import com.hzcu.loginmod.policy.PlayerPermissions;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 登录模组的管理命令
+ */
+public class LoginAdminCommand {
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("loginadmin")
+            .requires(source -> PlayerPermissions.has(source, Permission.USER_IMPORT))
+            .then(Commands.literal("import")
+                .then(Commands.argument("file", StringArgumentType.greedyString())
+                    .executes(LoginAdminCommand::importUsers))));
+    }
+
+    /**
+     * 从服务器目录下的 CSV 文件批量导入用户
+     * 读取和哈希在后台进行，完成后在主线程上一次性合并并写入本地用户数据（userdata.csv 或数据库）
+     */
+    private static int importUsers(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        String fileName = StringArgumentType.getString(context, "file");
+
+        // 只允许读取服务器目录内的文件
+        Path baseDir = Paths.get("").toAbsolutePath().normalize();
+        Path file = baseDir.resolve(fileName).normalize();
+        if (!file.startsWith(baseDir)) {
+            source.sendFailure(Component.literal("§c只能导入服务器目录下的文件！"));
+            return 0;
+        }
+        if (!Files.isRegularFile(file)) {
+            source.sendFailure(Component.literal("§c文件 " + fileName + " 不存在！"));
+            return 0;
+        }
+
+        MinecraftServer server = source.getServer();
+        UserStore localUsers = LoginCommand.getLocalUsers();
+        source.sendSuccess(() -> Component.literal("§e开始导入 " + fileName + "，完成后会通知您..."), true);
+
+        UserImporter.start(file, localUsers::findExisting,
+                (hashed, total) -> server.execute(() -> source.sendSuccess(
+                    () -> Component.literal("§7导入进度: " + hashed + "/" + total), false)))
+            .whenComplete((result, error) -> server.execute(() -> {
+                if (error != null) {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof IllegalStateException) {
+                        source.sendFailure(Component.literal("§c已有导入任务正在进行，请稍后再试！"));
+                    } else {
+                        source.sendFailure(Component.literal("§c导入失败: " + cause.getMessage()));
+                        LoginMod.LOGGER.error("Failed to import users from {}", file, cause);
+                    }
+                    return;
+                }
+                mergeImport(source, fileName, result);
+            }));
+        return 1;
+    }
+
+    /**
+     * 导入期间可能有用户通过 /adduser 添加，先在后台用一次批量查询重新检查，再回到主线程合并
+     */
+    private static void mergeImport(CommandSourceStack source, String fileName, UserImporter.Result result) {
+        LoginCommand.getLocalUsers().findExisting(result.users().keySet())
+            .whenComplete((existing, error) -> source.getServer().execute(() -> {
+                if (error != null) {
+                    Throwable cause = unwrap(error);
+                    source.sendFailure(Component.literal("§c导入失败: " + cause.getMessage()));
+                    LoginMod.LOGGER.error("Failed to check imported users from {}", fileName, cause);
+                    return;
+                }
+                writeImport(source, fileName, result, existing);
+            }));
+    }
+
+    /**
+     * 在主线程上一次性写入新用户，写入失败时整批回滚
+     */
+    private static void writeImport(CommandSourceStack source, String fileName, UserImporter.Result result,
+                                    Set<String> existing) {
+        UserStore localUsers = LoginCommand.getLocalUsers();
+        Map<String, String> users = new LinkedHashMap<>(result.users());
+        users.keySet().removeAll(existing);
+        int skipped = result.existing() + existing.size();
+
+        String summary = "读取 " + result.rows() + " 行，新增 " + users.size() + " 个用户，跳过已存在 " + skipped
+            + " 个、重复 " + result.duplicates() + " 个、无效 " + result.invalid() + " 行";
+        if (users.isEmpty()) {
+            source.sendSuccess(() -> Component.literal("§a导入完成：" + summary), true);
+            return;
+        }
+
+        localUsers.putUsers(users);
+        localUsers.appendUsers(users).whenComplete((written, error) -> source.getServer().execute(() -> {
+            if (written != null && written) {
+                source.sendSuccess(() -> Component.literal("§a导入完成：" + summary), true);
+                LoginMod.LOGGER.info("Imported {} users from {}", users.size(), fileName);
+                AuditLog.recordAdmin(source.getTextName(), "import " + users.size() + " users from " + fileName);
+            } else {
+                localUsers.removeUsers(users.keySet());
+                source.sendFailure(Component.literal("§c写入用户数据失败，本次导入已撤销！请检查服务器日志。"));
+            }
+        }));
+    }
+
+    /**
+     * 去掉线程池包装的异常，保留真正的失败原因
+     */
+    private static Throwable unwrap(Throwable error) {
+        boolean wrapped = error instanceof CompletionException || error instanceof ExecutionException;
+        return wrapped && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,150 @@
+package com.hzcu.loginmod.command;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.audit.AuditQuery;
+import com.hzcu.loginmod.policy.Permission;
+import com.hzcu.loginmod.policy.PlayerPermissions;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 查询登录审计日志的命令
+ * /loginaudit <玩家名|账号|UUID> [起始时间]，起始时间可以是 30m、12h、7d 这样的时长或 2024-09-01 这样的日期
+ */
+public class LoginAuditCommand {
+    private static final int MAX_RESULTS = 20;
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([mhd])");
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("loginaudit")
+            .requires(source -> PlayerPermissions.has(source, Permission.AUDIT_VIEW))
+            .then(Commands.argument("target", StringArgumentType.word())
+                .executes(context -> query(context, null))
+                .then(Commands.argument("since", StringArgumentType.word())
+                    .executes(context -> query(context, StringArgumentType.getString(context, "since"))))));
+    }
+
+    private static int query(CommandContext<CommandSourceStack> context, String since) {
+        CommandSourceStack source = context.getSource();
+        Path dir = AuditLog.directory();
+        if (dir == null) {
+            source.sendFailure(Component.literal("§c审计日志未启用！"));
+            return 0;
+        }
+
+        long sinceMillis = 0;
+        if (since != null) {
+            sinceMillis = parseSince(since);
+            if (sinceMillis < 0) {
+                source.sendFailure(Component.literal("§c无法识别的起始时间 " + since + "，请使用 30m、12h、7d 或 2024-09-01 这样的格式"));
+                return 0;
+            }
+        }
+
+        String target = StringArgumentType.getString(context, "target");
+        MinecraftServer server = source.getServer();
+        source.sendSuccess(() -> Component.literal("§e正在查询 " + target + " 的审计记录..."), false);
+        AuditQuery.start(dir, target, sinceMillis, MAX_RESULTS)
+            .whenComplete((result, error) -> server.execute(() -> {
+                if (error != null) {
+                    source.sendFailure(Component.literal("§c查询审计日志失败: " + error.getMessage()));
+                    LoginMod.LOGGER.error("Failed to query audit log for {}", target, error);
+                    return;
+                }
+                showResult(source, target, result);
+            }));
+        return 1;
+    }
+
+    private static void showResult(CommandSourceStack source, String target, AuditQuery.Result result) {
+        send(source, "§6=== " + target + " 的审计记录 ===");
+        if (result.entries().isEmpty()) {
+            send(source, "§7没有找到匹配的记录（扫描了 " + result.scannedLines() + " 行）");
+            return;
+        }
+        for (AuditQuery.Entry entry : result.entries()) {
+            StringBuilder line = new StringBuilder();
+            line.append("§7").append(TIME_FORMAT.format(entry.time())).append(" §f").append(label(entry.type()));
+            if (entry.playerName() != null) {
+                line.append(" §e").append(entry.playerName());
+            }
+            if (entry.account() != null) {
+                line.append(" §b").append(entry.account());
+            }
+            if (entry.ip() != null) {
+                line.append(" §7").append(entry.ip());
+            }
+            if (entry.detail() != null) {
+                line.append(" §7").append(entry.detail());
+            }
+            send(source, line.toString());
+        }
+        if (result.matched() > result.entries().size()) {
+            send(source, "§7共 " + result.matched() + " 条，只显示最近的 " + result.entries().size() + " 条");
+        }
+    }
+
+    private static String label(String type) {
+        if (type == null) {
+            return "未知";
+        }
+        return switch (type) {
+            case "login" -> "登录";
+            case "login_failed" -> "登录失败";
+            case "locked" -> "锁定";
+            case "auto_login" -> "白名单登录";
+            case "resume" -> "恢复会话";
+            case "logout" -> "退出";
+            case "timeout_kick" -> "超时踢出";
+            case "admin" -> "管理操作";
+            default -> type;
+        };
+    }
+
+    /**
+     * 解析起始时间，无法识别时返回 -1
+     */
+    private static long parseSince(String since) {
+        Matcher matcher = DURATION.matcher(since);
+        if (matcher.matches()) {
+            try {
+                long amount = Long.parseLong(matcher.group(1));
+                Duration duration = switch (matcher.group(2)) {
+                    case "m" -> Duration.ofMinutes(amount);
+                    case "h" -> Duration.ofHours(amount);
+                    default -> Duration.ofDays(amount);
+                };
+                return Math.subtractExact(System.currentTimeMillis(), duration.toMillis());
+            } catch (NumberFormatException | ArithmeticException e) {
+                // 数字过大
+                return -1;
+            }
+        }
+        try {
+            return LocalDate.parse(since).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static void send(CommandSourceStack source, String line) {
+        source.sendSuccess(() -> Component.literal(line), false);
+    }
+}
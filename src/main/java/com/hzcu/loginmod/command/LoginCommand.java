@@ -1,102 +1,196 @@
 package com.hzcu.loginmod.command;
 
 import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.audit.AuditType;
+import com.hzcu.loginmod.auth.AdmissionQueue;
+import com.hzcu.loginmod.auth.AuthBackend;
+import com.hzcu.loginmod.auth.AuthExecutor;
+import com.hzcu.loginmod.auth.AuthResult;
+import com.hzcu.loginmod.auth.CsvAuthBackend;
+import com.hzcu.loginmod.auth.DatabaseAuthBackend;
+import com.hzcu.loginmod.auth.HzcuCaAuthBackend;
+import com.hzcu.loginmod.auth.LoginRateLimiter;
+import com.hzcu.loginmod.auth.PasswordHasher;
+import com.hzcu.loginmod.auth.UserStore;
+import com.hzcu.loginmod.config.LoginSettings;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.db.LoginDatabase;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+import com.hzcu.loginmod.policy.Permission;
+import com.hzcu.loginmod.policy.PlayerPermissions;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.nio.file.Files;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LoginCommand {
-    // 用户名密码存储
-    private static final Map<String, String> userCredentials = new HashMap<>();
-    private static final String CSV_FILE_PATH = "userdata.csv";
+    public static final Path CSV_FILE_PATH = Paths.get("userdata.csv");
+    public static final Path INDEX_FILE_PATH = Paths.get("userdata.idx");
+    
+    private static final CsvAuthBackend csvUsers = new CsvAuthBackend(CSV_FILE_PATH, INDEX_FILE_PATH);
+    
+    // 本地用户数据，/adduser 始终写入这里：userdata.csv，或启用时的内嵌数据库
+    private static volatile UserStore localUsers = csvUsers;
+    
+    // 当前用于 /login 的认证后端
+    private static volatile AuthBackend authBackend = csvUsers;
+    
+    // 按玩家和按 IP 的登录限流
+    private static volatile LoginRateLimiter<UUID> playerLimiter = createLimiter(new LoginSettings());
+    private static volatile LoginRateLimiter<String> addressLimiter = createAddressLimiter(new LoginSettings());
+    private static final AtomicBoolean warnedLoopback = new AtomicBoolean();
+    
+    // 验证任务的准入队列
+    private static volatile AdmissionQueue admissionQueue = createQueue(new LoginSettings());
     
     static {
-        // 从 CSV 文件加载用户数据
-        loadUsersFromCSV();
+        // 优先使用预编译索引，否则从 CSV 文件加载用户数据；启用数据库时由 useDatabase 加载
+        if (!WhitelistConfig.getSettings().isDatabaseEnabled()) {
+            csvUsers.load();
+        }
     }
     
     /**
-     * 从 CSV 文件加载用户数据
+     * 选择本地用户数据的存储（服务器启动时在 configure 之前调用）
+     * database 为 null（未启用或无法打开）时使用 userdata.csv
      */
-    private static void loadUsersFromCSV() {
-        Path csvPath = Paths.get(CSV_FILE_PATH);
-        
-        if (!Files.exists(csvPath)) {
-            LoginMod.LOGGER.error("用户数据文件 {} 不存在！", CSV_FILE_PATH);
-            LoginMod.LOGGER.warn("使用默认测试账号");
-            // 如果文件不存在，使用默认测试账号
-            userCredentials.put("admin", "admin123");
-            userCredentials.put("player1", "password1");
-            userCredentials.put("player2", "password2");
-            return;
+    public static void useDatabase(LoginDatabase database) {
+        if (database != null) {
+            DatabaseAuthBackend users = new DatabaseAuthBackend(database, CSV_FILE_PATH);
+            users.load();
+            localUsers = users;
+        } else if (localUsers != csvUsers || WhitelistConfig.getSettings().isDatabaseEnabled()) {
+            localUsers = csvUsers;
+            csvUsers.load();
         }
+    }
+    
+    /**
+     * 根据配置选择认证后端并创建限流器和准入队列
+     */
+    public static void configure(LoginSettings settings) {
+        playerLimiter = createLimiter(settings);
+        addressLimiter = createAddressLimiter(settings);
+        admissionQueue = createQueue(settings);
         
-        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
-            String line;
-            boolean isFirstLine = true;
-            int lineCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                // 跳过标题行
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
-                
-                // 解析 CSV 行
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    String username = parts[0].trim();
-                    String password = parts[1].trim();
-                    
-                    if (!username.isEmpty() && !password.isEmpty()) {
-                        userCredentials.put(username, password);
-                        lineCount++;
-                    }
-                }
+        AuthBackend backend = localUsers;
+        if ("ca".equalsIgnoreCase(settings.getAuthBackend())) {
+            if (settings.getCaEndpoint() == null || settings.getCaEndpoint().isBlank()) {
+                LoginMod.LOGGER.error("authBackend 为 ca 但未配置 caEndpoint，继续使用本地用户数据");
+            } else {
+                backend = new HzcuCaAuthBackend(settings);
+            }
+        }
+        authBackend = backend;
+        LoginMod.LOGGER.info("Using {} authentication backend", backend.name());
+    }
+    
+    private static <K> LoginRateLimiter<K> createLimiter(LoginSettings settings) {
+        return new LoginRateLimiter<>(settings.getLoginRateCapacity(), settings.getLoginRateRefillPerMinute(),
+            settings.getLoginLockoutBaseSeconds(), settings.getLoginLockoutMaxSeconds(),
+            settings.getLoginRateMaxEntries());
+    }
+    
+    private static LoginRateLimiter<String> createAddressLimiter(LoginSettings settings) {
+        return new LoginRateLimiter<>(settings.getLoginAddressRateCapacity(),
+            settings.getLoginAddressRateRefillPerMinute(), settings.getLoginLockoutBaseSeconds(),
+            settings.getLoginLockoutMaxSeconds(), settings.getLoginRateMaxEntries());
+    }
+    
+    /**
+     * 按 IP 限流时使用的键，本机地址返回 null（不按地址限流）
+     * 代理没有转发真实 IP 时所有玩家的地址都是本机地址，按地址限流会让所有玩家共用一个令牌桶
+     */
+    private static String addressKey(String ip) {
+        boolean loopback;
+        try {
+            loopback = InetAddress.getByName(ip).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            loopback = false;
+        }
+        if (!loopback) {
+            return ip;
+        }
+        if (warnedLoopback.compareAndSet(false, true)) {
+            LoginMod.LOGGER.warn("玩家的地址 {} 是本机地址，代理可能没有转发玩家的真实 IP，按 IP 的登录限流已跳过", ip);
+        }
+        return null;
+    }
+    
+    private static AdmissionQueue createQueue(LoginSettings settings) {
+        return new AdmissionQueue(settings.getLoginMaxConcurrent(), settings.getLoginQueueCapacity());
+    }
+    
+    /**
+     * 向排队中的玩家显示当前位置（主线程每秒调用一次）
+     */
+    public static void notifyQueuePositions(MinecraftServer server) {
+        List<UUID> waiting = admissionQueue.waitingPlayers();
+        for (int i = 0; i < waiting.size(); i++) {
+            ServerPlayer player = server.getPlayerList().getPlayer(waiting.get(i));
+            if (player != null) {
+                player.displayClientMessage(Component.literal("§e正在排队验证，前面还有 " + i + " 人..."), true);
             }
-            
-            LoginMod.LOGGER.info("成功从 {} 加载了 {} 个用户账号", CSV_FILE_PATH, lineCount);
-            
-        } catch (IOException e) {
-            LoginMod.LOGGER.error("读取用户数据文件 {} 时出错: {}", CSV_FILE_PATH, e.getMessage());
-            LoginMod.LOGGER.warn("使用默认测试账号");
-            // 如果读取失败，使用默认测试账号
-            userCredentials.put("admin", "admin123");
-            userCredentials.put("player1", "password1");
-            userCredentials.put("player2", "password2");
         }
     }
     
+    /**
+     * 玩家离开服务器时取消其仍在排队的验证
+     */
+    public static void cancelQueuedLogin(UUID playerUUID) {
+        admissionQueue.cancel(playerUUID);
+    }
+    
     /**
      * 重新加载用户数据（用于动态更新用户列表）
      */
     public static void reloadUsers() {
-        userCredentials.clear();
-        loadUsersFromCSV();
-        LoginMod.LOGGER.info("用户数据已重新加载");
+        localUsers.load();
+    }
+    
+    /**
+     * userdata.csv 被外部修改后重新加载（由文件监视线程调用），本进程自己追加记录引起的通知会被忽略
+     */
+    public static void reloadUsersIfModified() {
+        if (localUsers == csvUsers && !csvUsers.isOwnWrite()) {
+            csvUsers.load();
+        }
     }
     
     /**
      * 获取当前加载的用户数量
      */
     public static int getUserCount() {
-        return userCredentials.size();
+        return localUsers.getUserCount();
+    }
+    
+    /**
+     * 获取本地用户数据（批量导入等管理命令使用）
+     */
+    public static UserStore getLocalUsers() {
+        return localUsers;
+    }
+    
+    /**
+     * 写完尚未落盘的用户记录（服务器停止时调用）
+     */
+    public static void flushUsers() {
+        localUsers.flush();
     }
 
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
@@ -108,7 +202,7 @@ public class LoginCommand {
         
         // 添加用户命令（管理员专用）
         dispatcher.register(Commands.literal("adduser")
-                .requires(source -> source.hasPermission(2)) // 需要管理员权限
+                .requires(source -> PlayerPermissions.has(source, Permission.USER_ADD))
                 .then(Commands.argument("username", StringArgumentType.word())
                         .then(Commands.argument("password", StringArgumentType.greedyString())
                                 .executes(LoginCommand::executeAddUser))));
@@ -123,47 +217,158 @@ public class LoginCommand {
             return 0;
         }
 
-        String username = StringArgumentType.getString(context, "username");
-        String password = StringArgumentType.getString(context, "password");
+        UUID playerUUID = player.getUUID();
         
         // 检查玩家是否已经登录
-        UUID playerUUID = player.getUUID();
         if (LoginMod.isPlayerLoggedIn(playerUUID)) {
             player.sendSystemMessage(Component.literal("§e您已经登录过了！"));
             return 1;
         }
 
-        // 验证用户名和密码后六位
-        if (userCredentials.containsKey(username)) {
-            String fullPassword = userCredentials.get(username);
-            
-            // 获取完整密码的后六位
-            String lastSixDigits = fullPassword.length() >= 6 
-                ? fullPassword.substring(fullPassword.length() - 6) 
-                : fullPassword;
-            
-            // 比较用户输入的密码和完整密码的后六位
-            if (lastSixDigits.equals(password)) {
+        // 正在验证或排队中，忽略重复的登录命令
+        if (LoginMod.isPlayerAuthenticating(playerUUID)) {
+            player.sendSystemMessage(Component.literal("§e正在验证身份，请稍候..."));
+            return 0;
+        }
+
+        // 然后才做限流检查：已登录或排队中的玩家重复发送 /login 不消耗令牌；被拒绝的尝试不访问凭据也不写日志
+        LoginMetrics.recordAttempt();
+        LoginRateLimiter.Decision decision = playerLimiter.tryAcquire(playerUUID);
+        if (!decision.allowed()) {
+            LoginMetrics.recordRateLimited();
+            if (decision.shouldNotify()) {
+                LoginMod.lockPlayer(playerUUID, decision.retryAfterMillis());
+                AuditLog.record(AuditType.LOCKED, playerUUID, player.getName().getString(), null,
+                    player.getIpAddress(), decision.retryAfterMillis() + "ms");
+                sendRetryAfter(player, decision.retryAfterMillis());
+            }
+            return 0;
+        }
+        
+        // 按 IP 只检查是否被锁定，令牌只在验证失败时消耗；同一地址的每个玩家都会收到提示
+        String address = addressKey(player.getIpAddress());
+        if (address != null) {
+            decision = addressLimiter.check(address);
+            if (!decision.allowed()) {
+                LoginMetrics.recordRateLimited();
+                sendRetryAfter(player, decision.retryAfterMillis());
+                return 0;
+            }
+        }
+
+        String username = StringArgumentType.getString(context, "username");
+        String password = StringArgumentType.getString(context, "password");
+        
+        // 在工作线程上验证，结果通过服务器任务队列回到主线程处理
+        MinecraftServer server = source.getServer();
+        String playerName = player.getName().getString();
+        if (!LoginMod.markPlayerAuthenticating(playerUUID)) {
+            // 状态在检查之后被其他线程修改（例如刚刚被锁定）
+            return 0;
+        }
+        
+        AuthBackend backend = authBackend;
+        AdmissionQueue.Admission admission = admissionQueue.submit(playerUUID, () -> {
+            long start = System.nanoTime();
+            AuthResult result = backend.authenticate(username, password);
+            LoginMetrics.recordResult(result, System.nanoTime() - start);
+            return result;
+        });
+        if (!admission.accepted()) {
+            // 排队人数已满，直接拒绝，不占用验证名额
+            LoginMod.clearPlayerAuthenticating(playerUUID);
+            long seconds = Math.max(1, admission.retryAfterMillis() / 1000);
+            player.sendSystemMessage(Component.literal("§c当前登录人数过多，请 " + seconds + " 秒后再试。"));
+            return 0;
+        }
+        
+        if (admission.position() > 0) {
+            player.sendSystemMessage(Component.literal("§e登录人数较多，正在排队，前面还有 " + (admission.position() - 1) + " 人..."));
+        } else {
+            player.sendSystemMessage(Component.literal("§e正在验证身份，请稍候..."));
+        }
+        admission.future().whenComplete((result, error) -> {
+            // 玩家离开服务器时取消的排队不算验证异常
+            if (error != null && !(error instanceof CancellationException)) {
+                LoginMetrics.recordError();
+            }
+            server.execute(() -> applyLoginResult(server, playerUUID, playerName, username, result, error));
+        });
+        return 1;
+    }
+    
+    /**
+     * 在主线程上应用验证结果
+     */
+    private static void applyLoginResult(MinecraftServer server, UUID playerUUID, String playerName,
+                                         String username, AuthResult result, Throwable error) {
+        LoginMod.clearPlayerAuthenticating(playerUUID);
+        
+        // 验证期间玩家已离开服务器
+        ServerPlayer player = server.getPlayerList().getPlayer(playerUUID);
+        if (player == null) {
+            return;
+        }
+        
+        if (error != null) {
+            player.sendSystemMessage(Component.literal("§c服务器繁忙，请稍后重试。"));
+            LoginMod.LOGGER.warn("Login verification for player {} failed: {}", playerName, error.toString());
+            return;
+        }
+        
+        switch (result) {
+            case SUCCESS -> {
                 // 登录成功
-                LoginMod.markPlayerLoggedIn(playerUUID);
+                LoginMod.markPlayerLoggedIn(playerUUID, username);
+                playerLimiter.reset(playerUUID);
                 player.sendSystemMessage(Component.literal("§a登录成功！欢迎回来，" + username + "！"));
                 player.sendSystemMessage(Component.literal("§a您现在可以自由移动和破坏方块了。"));
-                LoginMod.LOGGER.info("Player {} ({}) logged in successfully", player.getName().getString(), username);
-                return 1;
-            } else {
+                AuditLog.record(AuditType.LOGIN, playerUUID, playerName, username, player.getIpAddress(), null);
+            }
+            case WRONG_PASSWORD -> {
                 // 密码错误
                 player.sendSystemMessage(Component.literal("§c密码错误！请重试。"));
-                LoginMod.LOGGER.warn("Player {} failed login attempt for username {}", player.getName().getString(), username);
-                return 0;
+                AuditLog.record(AuditType.LOGIN_FAILED, playerUUID, playerName, username, player.getIpAddress(),
+                    "wrong_password");
+                chargeAddress(player, playerUUID, playerName);
+            }
+            case UNKNOWN_USER -> {
+                // 用户名不存在
+                player.sendSystemMessage(Component.literal("§c用户名不存在！请检查您的用户名。"));
+                AuditLog.record(AuditType.LOGIN_FAILED, playerUUID, playerName, username, player.getIpAddress(),
+                    "unknown_user");
+                chargeAddress(player, playerUUID, playerName);
+            }
+            case UNAVAILABLE -> {
+                // 认证服务不可用
+                player.sendSystemMessage(Component.literal("§c认证服务暂时不可用，请稍后重试。"));
+                AuditLog.record(AuditType.LOGIN_FAILED, playerUUID, playerName, username, player.getIpAddress(),
+                    "unavailable");
             }
-        } else {
-            // 用户名不存在
-            player.sendSystemMessage(Component.literal("§c用户名不存在！请检查您的用户名。"));
-            LoginMod.LOGGER.warn("Player {} attempted login with non-existent username {}", player.getName().getString(), username);
-            return 0;
         }
     }
     
+    /**
+     * 验证失败时消耗玩家地址的一个令牌，用完后锁定该地址
+     */
+    private static void chargeAddress(ServerPlayer player, UUID playerUUID, String playerName) {
+        String address = addressKey(player.getIpAddress());
+        if (address == null) {
+            return;
+        }
+        LoginRateLimiter.Decision decision = addressLimiter.tryAcquire(address);
+        if (decision.shouldNotify()) {
+            AuditLog.record(AuditType.LOCKED, playerUUID, playerName, null, player.getIpAddress(),
+                "address " + decision.retryAfterMillis() + "ms");
+            sendRetryAfter(player, decision.retryAfterMillis());
+        }
+    }
+    
+    private static void sendRetryAfter(ServerPlayer player, long retryAfterMillis) {
+        long seconds = Math.max(1, retryAfterMillis / 1000);
+        player.sendSystemMessage(Component.literal("§c登录尝试过于频繁，请 " + seconds + " 秒后再试。"));
+    }
+    
     /**
      * 执行添加用户命令
      */
@@ -173,12 +378,6 @@ public class LoginCommand {
         String newUsername = StringArgumentType.getString(context, "username");
         String newPassword = StringArgumentType.getString(context, "password");
         
-        // 检查用户名是否已存在
-        if (userCredentials.containsKey(newUsername)) {
-            source.sendFailure(Component.literal("§c用户名 " + newUsername + " 已存在！"));
-            return 0;
-        }
-        
         // 验证用户名和密码格式
         if (newUsername.isEmpty() || newPassword.isEmpty()) {
             source.sendFailure(Component.literal("§c用户名和密码不能为空！"));
@@ -190,52 +389,63 @@ public class LoginCommand {
             return 0;
         }
         
-        // 添加到内存
-        userCredentials.put(newUsername, newPassword);
-        
-        // 写入 CSV 文件
-        if (saveUserToCSV(newUsername, newPassword)) {
-            source.sendSuccess(() -> Component.literal("§a成功添加用户: " + newUsername), true);
-            LoginMod.LOGGER.info("Admin {} added new user: {}", 
-                source.getEntity() != null ? source.getEntity().getName().getString() : "Console", 
-                newUsername);
-            return 1;
-        } else {
-            source.sendFailure(Component.literal("§c添加用户到文件失败！请检查服务器日志。"));
-            // 如果写入文件失败，从内存中移除
-            userCredentials.remove(newUsername);
-            return 0;
-        }
+        // 只保存后六位的哈希，哈希计算在工作线程上进行
+        MinecraftServer server = source.getServer();
+        int iterations = PasswordHasher.getTargetIterations();
+        ifUserAbsent(source, newUsername, () -> AuthExecutor.submit(
+                () -> PasswordHasher.hash(PasswordHasher.secretOf(newPassword), iterations))
+            .whenComplete((stored, error) -> server.execute(
+                () -> finishAddUser(source, newUsername, stored, error))));
+        return 1;
     }
     
     /**
-     * 将新用户保存到 CSV 文件
+     * 在后台检查用户名是否已存在（数据库后端不在主线程上查询），不存在时在主线程上执行 action
      */
-    private static boolean saveUserToCSV(String username, String password) {
-        Path csvPath = Paths.get(CSV_FILE_PATH);
-        
-        try {
-            // 如果文件不存在，创建并写入标题行
-            if (!Files.exists(csvPath)) {
-                try (BufferedWriter writer = Files.newBufferedWriter(csvPath)) {
-                    writer.write("username,password");
-                    writer.newLine();
-                }
-            }
-            
-            // 追加新用户
-            try (BufferedWriter writer = Files.newBufferedWriter(csvPath, 
-                    StandardOpenOption.APPEND)) {
-                writer.write(username + "," + password);
-                writer.newLine();
+    private static void ifUserAbsent(CommandSourceStack source, String username, Runnable action) {
+        localUsers.findExisting(List.of(username)).whenComplete((existing, error) -> source.getServer().execute(() -> {
+            if (error != null) {
+                source.sendFailure(Component.literal("§c用户数据暂时不可用，添加用户失败，请稍后重试。"));
+                LoginMod.LOGGER.error("Failed to check whether user {} exists: {}", username, error.getMessage());
+            } else if (!existing.isEmpty()) {
+                source.sendFailure(Component.literal("§c用户名 " + username + " 已存在！"));
+            } else {
+                action.run();
             }
-            
-            LoginMod.LOGGER.info("Successfully saved new user {} to CSV file", username);
-            return true;
-            
-        } catch (IOException e) {
-            LoginMod.LOGGER.error("Failed to save user {} to CSV file: {}", username, e.getMessage());
-            return false;
+        }));
+    }
+    
+    /**
+     * 在主线程上保存哈希完成的新用户
+     */
+    private static void finishAddUser(CommandSourceStack source, String newUsername, String stored, Throwable error) {
+        if (error != null) {
+            source.sendFailure(Component.literal("§c服务器繁忙，添加用户失败，请稍后重试。"));
+            return;
+        }
+        
+        // 哈希期间可能已被添加；先添加到内存，再交给批量写入器持久化
+        ifUserAbsent(source, newUsername, () -> {
+            localUsers.putUser(newUsername, stored);
+            localUsers.appendUsers(Map.of(newUsername, stored))
+                .whenComplete((written, writeError) -> source.getServer().execute(
+                    () -> reportAddUser(source, newUsername, written != null && written)));
+        });
+    }
+    
+    /**
+     * 在主线程上报告写入结果，写入失败时从内存中移除
+     */
+    private static void reportAddUser(CommandSourceStack source, String newUsername, boolean written) {
+        if (written) {
+            source.sendSuccess(() -> Component.literal("§a成功添加用户: " + newUsername), true);
+            String actor = source.getEntity() != null ? source.getEntity().getName().getString() : "Console";
+            LoginMod.LOGGER.info("Admin {} added new user: {}", actor, newUsername);
+            AuditLog.recordAdmin(actor, "adduser " + newUsername);
+        } else {
+            source.sendFailure(Component.literal("§c添加用户到文件失败！请检查服务器日志。"));
+            // 如果写入文件失败，从内存中移除
+            localUsers.removeUser(newUsername);
         }
     }
     
@@ -243,7 +453,7 @@ public class LoginCommand {
      * 添加新用户（可用于注册功能）
      */
     public static void addUser(String username, String password) {
-        userCredentials.put(username, password);
+        localUsers.putUser(username, password);
         LoginMod.LOGGER.info("Added new user: {}", username);
     }
 }
@@ -0,0 +1,68 @@
+package com.hzcu.loginmod.command;
+
+import com.hzcu.loginmod.metrics.LatencyHistogram;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+import com.hzcu.loginmod.metrics.LoginStats;
+import com.hzcu.loginmod.policy.Permission;
+import com.hzcu.loginmod.policy.PlayerPermissions;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 查看登录和操作限制统计的命令
+ */
+public class LoginStatsCommand {
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("loginstats")
+            .requires(source -> PlayerPermissions.has(source, Permission.STATS_VIEW))
+            .executes(LoginStatsCommand::showStats));
+    }
+
+    private static int showStats(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        LatencyHistogram.Snapshot verify = LoginMetrics.VERIFY_LATENCY.snapshot();
+        LatencyHistogram.Snapshot restriction = LoginMetrics.RESTRICTION_TICK_TIME.snapshot();
+        LatencyHistogram.Snapshot queueWait = LoginMetrics.QUEUE_WAIT.snapshot();
+
+        send(source, "§6=== 登录统计 ===");
+        send(source, "§e登录尝试: §f" + LoginMetrics.getAttempts() + " §e成功: §a" + LoginMetrics.getSuccesses());
+        send(source, "§e失败: §f" + joinNonZero(LoginMetrics.getFailures()));
+        send(source, String.format(Locale.ROOT, "§e验证耗时: §fp50 %.1f ms, p99 %.1f ms, 最大 %.1f ms §7(%d 次)",
+            verify.percentile(0.5) / 1e6, verify.percentile(0.99) / 1e6, verify.max() / 1e6, verify.count()));
+        send(source, String.format(Locale.ROOT, "§e排队: §f当前 %d 人, 峰值 %d 人, 等待 p50 %.1f ms, p99 %.1f ms, 最大 %.1f ms",
+            LoginMetrics.getQueueDepth(), LoginMetrics.getQueuePeakDepth(),
+            queueWait.percentile(0.5) / 1e6, queueWait.percentile(0.99) / 1e6, queueWait.max() / 1e6));
+        send(source, String.format(Locale.ROOT, "§e限制处理每 tick 耗时: §fp50 %.1f µs, p99 %.1f µs, 最大 %.1f µs",
+            restriction.percentile(0.5) / 1e3, restriction.percentile(0.99) / 1e3, restriction.max() / 1e3));
+        send(source, "§e拦截的操作: §f" + joinNonZero(LoginMetrics.getDenied()));
+        send(source, "§e丢弃的数据包: §f" + LoginMetrics.getDroppedPackets());
+        send(source, "§e丢弃的审计事件: §f" + LoginMetrics.getAuditDropped());
+        send(source, "§e在线会话: §f" + joinNonZero(LoginStats.sessionCounts()));
+        return 1;
+    }
+
+    private static void send(CommandSourceStack source, String line) {
+        source.sendSuccess(() -> Component.literal(line), false);
+    }
+
+    /**
+     * 把非零的计数拼成 "名称=次数" 列表，全部为零时返回 "无"
+     */
+    private static String joinNonZero(Map<String, ? extends Number> values) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            if (entry.getValue().longValue() != 0) {
+                joiner.add(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        return joiner.length() == 0 ? "无" : joiner.toString();
+    }
+}
@@ -1,40 +1,55 @@
 package com.hzcu.loginmod.command;
 
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
 import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.policy.Permission;
+import com.hzcu.loginmod.policy.PlayerPermissions;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.ClickEvent;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.HoverEvent;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 白名单管理命令
  * 允许管理员添加/移除不需要登录的用户
  */
 public class WhitelistCommand {
+    // 拥有其中任意一个权限即可看到 /loginwhitelist
+    private static final int ANY_PERMISSION = Permission.WHITELIST_VIEW.bit() | Permission.WHITELIST_MANAGE.bit()
+        | Permission.CONFIG_RELOAD.bit();
+    // 名单每页显示的名字数
+    private static final int PAGE_SIZE = 20;
     
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
         dispatcher.register(Commands.literal("loginwhitelist")
-            .requires(source -> {
-                // 只有管理员才能使用此命令
-                if (source.getEntity() instanceof ServerPlayer player) {
-                    return WhitelistConfig.isAdministrator(player.getName().getString());
-                }
-                return source.hasPermission(2); // 服务器控制台也可以使用
-            })
+            .requires(source -> PlayerPermissions.hasAny(source, ANY_PERMISSION))
             .then(Commands.literal("add")
+                .requires(source -> PlayerPermissions.has(source, Permission.WHITELIST_MANAGE))
                 .then(Commands.argument("player", StringArgumentType.string())
                     .executes(WhitelistCommand::addPlayer)))
             .then(Commands.literal("remove")
+                .requires(source -> PlayerPermissions.has(source, Permission.WHITELIST_MANAGE))
                 .then(Commands.argument("player", StringArgumentType.string())
                     .executes(WhitelistCommand::removePlayer)))
-            .then(Commands.literal("list")
-                .executes(WhitelistCommand::listPlayers))
+            .then(listCommand("list", "白名单", WhitelistConfig::getSortedWhitelistedPlayers,
+                WhitelistConfig::getWhitelistedPlayers))
+            .then(listCommand("admins", "管理员名单", WhitelistConfig::getSortedAdministrators,
+                WhitelistConfig::getAdministrators))
             .then(Commands.literal("reload")
+                .requires(source -> PlayerPermissions.has(source, Permission.CONFIG_RELOAD))
                 .executes(WhitelistCommand::reloadConfig))
             .executes(WhitelistCommand::showHelp));
     }
@@ -50,6 +65,13 @@ public class WhitelistCommand {
                 () -> Component.literal("§a成功将玩家 §e" + playerName + " §a添加到白名单！"),
                 true
             );
+            AuditLog.recordAdmin(context.getSource().getTextName(), "whitelist add " + playerName);
+            
+            // 玩家在线且尚未登录时立即自动登录
+            ServerPlayer online = context.getSource().getServer().getPlayerList().getPlayerByName(playerName);
+            if (online != null) {
+                autoLoginIfWhitelisted(online);
+            }
             return 1;
         } else {
             context.getSource().sendFailure(
@@ -70,6 +92,7 @@ public class WhitelistCommand {
                 () -> Component.literal("§a成功将玩家 §e" + playerName + " §a从白名单移除！"),
                 true
             );
+            AuditLog.recordAdmin(context.getSource().getTextName(), "whitelist remove " + playerName);
             return 1;
         } else {
             context.getSource().sendFailure(
@@ -80,40 +103,121 @@ public class WhitelistCommand {
     }
     
     /**
-     * 列出所有白名单玩家
+     * 分页查看名单的子命令：<name> [页码] [过滤]，<name> count [过滤] 只显示数量
+     *
+     * @param sorted   分页使用的排序视图
+     * @param unsorted 只计数时使用的原始列表，不触发排序
      */
-    private static int listPlayers(CommandContext<CommandSourceStack> context) {
-        List<String> whitelistedPlayers = WhitelistConfig.getWhitelistedPlayers();
-        
-        context.getSource().sendSuccess(
-            () -> Component.literal("§e========== 白名单玩家列表 =========="),
-            false
-        );
-        
-        if (whitelistedPlayers.isEmpty()) {
-            context.getSource().sendSuccess(
-                () -> Component.literal("§7当前白名单为空"),
-                false
-            );
+    private static LiteralArgumentBuilder<CommandSourceStack> listCommand(String name, String title,
+            Supplier<List<String>> sorted, Supplier<List<String>> unsorted) {
+        return Commands.literal(name)
+            .requires(source -> PlayerPermissions.has(source, Permission.WHITELIST_VIEW))
+            .executes(context -> showPage(context.getSource(), name, title, sorted.get(), 1, null))
+            .then(Commands.literal("count")
+                .executes(context -> showCount(context.getSource(), title, unsorted.get(), null))
+                .then(Commands.argument("filter", StringArgumentType.word())
+                    .executes(context -> showCount(context.getSource(), title, unsorted.get(),
+                        StringArgumentType.getString(context, "filter")))))
+            .then(Commands.argument("page", IntegerArgumentType.integer(1))
+                .executes(context -> showPage(context.getSource(), name, title, sorted.get(),
+                    IntegerArgumentType.getInteger(context, "page"), null))
+                .then(Commands.argument("filter", StringArgumentType.word())
+                    .executes(context -> showPage(context.getSource(), name, title, sorted.get(),
+                        IntegerArgumentType.getInteger(context, "page"), StringArgumentType.getString(context, "filter")))));
+    }
+    
+    /**
+     * 把一页名单组成一条多行消息发送，底部带可点击的翻页链接
+     * 不过滤时直接取排序视图的子列表，过滤时逐个比较但只保留当前页的名字
+     */
+    private static int showPage(CommandSourceStack source, String subcommand, String title, List<String> names,
+                                int page, String filter) {
+        long from = (long) (page - 1) * PAGE_SIZE;
+        MutableComponent entries = Component.empty();
+        int matched;
+        if (filter == null) {
+            matched = names.size();
+            for (String name : names.subList((int) Math.min(from, matched), (int) Math.min(from + PAGE_SIZE, matched))) {
+                entries.append("\n  §7- §f" + name);
+            }
         } else {
-            context.getSource().sendSuccess(
-                () -> Component.literal("§a共有 §e" + whitelistedPlayers.size() + " §a个玩家在白名单中："),
-                false
-            );
-            for (String player : whitelistedPlayers) {
-                context.getSource().sendSuccess(
-                    () -> Component.literal("  §7- §f" + player),
-                    false
-                );
+            matched = 0;
+            for (String name : names) {
+                if (!containsIgnoreCase(name, filter)) {
+                    continue;
+                }
+                if (matched >= from && matched < from + PAGE_SIZE) {
+                    entries.append("\n  §7- §f" + name);
+                }
+                matched++;
             }
         }
         
-        context.getSource().sendSuccess(
-            () -> Component.literal("§e===================================="),
-            false
-        );
+        if (matched == 0) {
+            source.sendSuccess(() -> Component.literal(filter == null
+                ? "§7" + title + "为空" : "§7没有包含 " + filter + " 的" + title), false);
+            return 0;
+        }
+        int pages = (matched + PAGE_SIZE - 1) / PAGE_SIZE;
+        if (page > pages) {
+            source.sendFailure(Component.literal("§c页码超出范围，共 " + pages + " 页"));
+            return 0;
+        }
         
-        return 1;
+        MutableComponent message = Component.literal("§e========== " + title + "（共 " + matched + " 个"
+            + (filter != null ? "，包含 " + filter : "") + "） ==========");
+        message.append(entries);
+        message.append("\n");
+        message.append(pageLink("[上一页]", subcommand, page - 1, filter, page > 1));
+        message.append(" §7第 " + page + "/" + pages + " 页 ");
+        message.append(pageLink("[下一页]", subcommand, page + 1, filter, page < pages));
+        source.sendSuccess(() -> message, false);
+        return matched;
+    }
+    
+    /**
+     * 只显示名单中（包含过滤字符串的）名字数量
+     */
+    private static int showCount(CommandSourceStack source, String title, List<String> names, String filter) {
+        int count;
+        if (filter == null) {
+            count = names.size();
+        } else {
+            count = 0;
+            for (String name : names) {
+                if (containsIgnoreCase(name, filter)) {
+                    count++;
+                }
+            }
+        }
+        int result = count;
+        source.sendSuccess(() -> Component.literal(filter == null
+            ? "§a" + title + "共有 §e" + result + " §a个"
+            : "§a" + title + "中包含 " + filter + " 的共有 §e" + result + " §a个"), false);
+        return count;
+    }
+    
+    /**
+     * 翻页链接，不可用时显示为灰色且不可点击
+     */
+    private static Component pageLink(String label, String subcommand, int page, String filter, boolean enabled) {
+        if (!enabled) {
+            return Component.literal("§8" + label);
+        }
+        String command = "/loginwhitelist " + subcommand + " " + page + (filter != null ? " " + filter : "");
+        return Component.literal("§a" + label).withStyle(style -> style
+            .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, command))
+            .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Component.literal(command))));
+    }
+    
+    private static boolean containsIgnoreCase(String text, String needle) {
+        int max = text.length() - needle.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -121,6 +225,8 @@ public class WhitelistCommand {
      */
     private static int reloadConfig(CommandContext<CommandSourceStack> context) {
         WhitelistConfig.reload();
+        loginWhitelistedPlayers(context.getSource().getServer());
+        
         context.getSource().sendSuccess(
             () -> Component.literal("§a白名单配置已重新加载！"),
             true
@@ -128,6 +234,27 @@ public class WhitelistCommand {
         return 1;
     }
     
+    /**
+     * 重新加载白名单后，更新在线玩家的权限，让白名单中的在线未登录玩家直接登录（必须在服务器主线程调用）
+     */
+    public static void loginWhitelistedPlayers(MinecraftServer server) {
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            autoLoginIfWhitelisted(player);
+        }
+    }
+    
+    /**
+     * 把新加入名单的名字绑定到在线玩家并更新其权限，白名单中的在线未登录玩家直接标记为已登录
+     */
+    private static void autoLoginIfWhitelisted(ServerPlayer player) {
+        WhitelistConfig.resolve(player.getUUID(), player.getName().getString());
+        PlayerPermissions.refresh(player);
+        if (LoginMod.isPlayerPending(player.getUUID()) && WhitelistConfig.isWhitelisted(player.getUUID())) {
+            LoginMod.markPlayerLoggedIn(player.getUUID());
+            player.sendSystemMessage(Component.literal("§a您在白名单中，已自动登录！"));
+        }
+    }
+    
     /**
      * 显示帮助信息
      */
@@ -145,7 +272,15 @@ public class WhitelistCommand {
             false
         );
         context.getSource().sendSuccess(
-            () -> Component.literal("§6/loginwhitelist list §7- 查看所有白名单玩家"),
+            () -> Component.literal("§6/loginwhitelist list [页码] [过滤] §7- 分页查看白名单玩家"),
+            false
+        );
+        context.getSource().sendSuccess(
+            () -> Component.literal("§6/loginwhitelist admins [页码] [过滤] §7- 分页查看管理员"),
+            false
+        );
+        context.getSource().sendSuccess(
+            () -> Component.literal("§6/loginwhitelist list count [过滤] §7- 只显示白名单人数"),
             false
         );
         context.getSource().sendSuccess(
@@ -0,0 +1,131 @@
+package com.hzcu.loginmod.config;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监视配置和数据文件的修改
+ *
+ * 在后台线程上等待 WatchService 的通知，文件安静一段时间后再调用对应的回调，
+ * 编辑器保存时产生的多个事件只触发一次重新加载。回调在监视线程上执行。
+ */
+public class FileWatcher {
+    private static final long QUIET_MILLIS = 300;
+
+    private final Map<Path, Runnable> handlers = new HashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * 注册要监视的文件（必须在 start 之前调用）
+     */
+    public void watch(Path file, Runnable onChange) {
+        handlers.put(file.toAbsolutePath().normalize(), onChange);
+    }
+
+    /**
+     * 开始监视所有已注册文件所在的目录
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+
+        WatchService service = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new HashSet<>();
+        try {
+            for (Path file : handlers.keySet()) {
+                Path directory = file.getParent();
+                if (directories.add(directory)) {
+                    // 原子替换文件表现为新建事件
+                    directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+
+        watchService = service;
+        thread = new Thread(() -> run(service), "LoginMod-FileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        LoginMod.LOGGER.info("Watching {} files for changes", handlers.size());
+    }
+
+    /**
+     * 停止监视
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LoginMod.LOGGER.warn("关闭文件监视时出错: {}", e.getMessage());
+        }
+        thread.interrupt();
+        thread = null;
+        watchService = null;
+    }
+
+    private void run(WatchService service) {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(service.take(), changed);
+                // 继续收集事件，直到文件在一段时间内不再变化
+                WatchKey key;
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+
+                for (Path file : changed) {
+                    try {
+                        handlers.get(file).run();
+                    } catch (RuntimeException e) {
+                        LoginMod.LOGGER.error("处理文件 {} 的修改时出错", file, e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 正常停止
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失时把该目录下所有被监视的文件都当作已修改
+                for (Path file : handlers.keySet()) {
+                    if (file.getParent().equals(directory)) {
+                        changed.add(file);
+                    }
+                }
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (handlers.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+}
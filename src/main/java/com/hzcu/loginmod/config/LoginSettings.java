@@ -0,0 +1,313 @@
+package com.hzcu.loginmod.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * hzculogin.json 中 "settings" 部分的可调参数
+ * 由 Gson 反序列化，加载后不再修改
+ */
+public class LoginSettings implements Cloneable {
+    // 密码哈希迭代次数，0 表示首次启动时根据本机性能校准，结果写回此处
+    private int hashIterations = 0;
+    // 自动校准时单次验证允许的最大耗时（毫秒）
+    private int hashLatencyBudgetMillis = 50;
+
+    // 认证后端："csv" 使用本地 userdata.csv，"ca" 调用 HZCU 统一身份认证接口
+    private String authBackend = "csv";
+    private String caEndpoint = "";
+    private int caConnectTimeoutMillis = 2000;
+    private int caRequestTimeoutMillis = 3000;
+    // 超过该耗时的成功请求也计为一次失败，0 表示不检查
+    private int caSlowCallMillis = 1500;
+    private int caMaxInFlight = 16;
+    private int caBreakerFailureThreshold = 5;
+    private int caBreakerOpenMillis = 30000;
+
+    // 名单中玩家名的 UUID 解析方式："auto" 跟随 server.properties 中的 online-mode；
+    // "online" 只使用玩家加入时的 UUID（开启了 UUID 转发的代理后面应使用此项）；"offline" 按离线规则由名字推导
+    private String uuidMode = "auto";
+
+    // 用内嵌数据库保存用户凭据和名单，首次启用时自动导入 userdata.csv 和本文件中的名单
+    private boolean databaseEnabled = false;
+    // 数据库文件路径（不含 .mv.db 后缀）
+    private String databaseFile = "config/hzculogin-db";
+    private int databasePoolSize = 4;
+
+    // 会话和名单的存储："local" 只在本服务器内有效，"redis" 通过 Redis 在代理后的多台服务器之间共享
+    private String storeBackend = "local";
+    private String redisHost = "127.0.0.1";
+    private int redisPort = 6379;
+    private String redisPassword = "";
+    private String redisKeyPrefix = "hzculogin:";
+    private int redisTimeoutMillis = 2000;
+
+    // 会话恢复：有效期内从同一 IP 重连的玩家自动登录
+    private boolean sessionResumeEnabled = false;
+    private int sessionResumeTtlSeconds = 600;
+
+    // 登录限流：每个玩家和每个 IP 各有一个令牌桶，用完后锁定，连续锁定时时间翻倍
+    private int loginRateCapacity = 5;
+    private double loginRateRefillPerMinute = 6;
+    private int loginLockoutBaseSeconds = 30;
+    private int loginLockoutMaxSeconds = 900;
+    private int loginRateMaxEntries = 10000;
+    // 每个 IP 只对验证失败计数：同一校园网出口或代理后面的玩家共用一个地址，容量需要大得多
+    private int loginAddressRateCapacity = 30;
+    private double loginAddressRateRefillPerMinute = 30;
+
+    // 同时进行的 /login 验证数量，以及排队等待的最大人数
+    private int loginMaxConcurrent = 8;
+    private int loginQueueCapacity = 200;
+
+    // 同一玩家两次限制提示之间的最短间隔（tick）
+    private int reminderCooldownTicks = 40;
+
+    // 未登录玩家留在独立的 limbo 维度中，登录后回到原来的位置
+    private boolean limboEnabled = true;
+    // 加入后超过该时间仍未登录的玩家会被踢出，0 表示不限制
+    private int loginTimeoutSeconds = 300;
+
+    // 监视 userdata.csv、userdata.idx 和本配置文件，修改后自动重新加载
+    private boolean hotReloadEnabled = true;
+
+    // Prometheus 文本格式指标文件的路径，留空表示不导出
+    private String metricsFile = "";
+    private int metricsIntervalSeconds = 15;
+
+    // 审计日志：登录、退出和管理员修改逐行写入 NDJSON 文件，按大小或时间轮转
+    private boolean auditEnabled = true;
+    private String auditDirectory = "logs/loginaudit";
+    // 环形缓冲区的事件数，写满时丢弃新事件
+    private int auditBufferSize = 8192;
+    private int auditSegmentMaxMegabytes = 16;
+    private int auditRotateHours = 24;
+    // 保留的日志文件数，更早的文件被删除
+    private int auditMaxSegments = 30;
+
+    // 各登录状态下禁止的操作，"*" 表示全部；可用的操作名见 RestrictedAction
+    private Map<String, List<String>> restrictions = defaultRestrictions();
+    // 登录前仍可使用的命令（login 始终可用）
+    private List<String> allowedCommands = new ArrayList<>(List.of("login"));
+
+    // 各角色拥有的权限，"*" 表示全部；可用的权限名见 Permission，角色成员在 administrators 和 roleMembers 中配置
+    private Map<String, List<String>> roles = defaultRoles();
+
+    private static Map<String, List<String>> defaultRestrictions() {
+        Map<String, List<String>> restrictions = new LinkedHashMap<>();
+        restrictions.put("pending", new ArrayList<>(List.of("*")));
+        restrictions.put("authenticating", new ArrayList<>(List.of("*")));
+        restrictions.put("authenticated", new ArrayList<>());
+        restrictions.put("locked", new ArrayList<>(List.of("*")));
+        return restrictions;
+    }
+
+    private static Map<String, List<String>> defaultRoles() {
+        Map<String, List<String>> roles = new LinkedHashMap<>();
+        roles.put("admin", new ArrayList<>(List.of("*")));
+        roles.put("operator", new ArrayList<>(List.of("whitelist_view", "whitelist_manage", "user_add", "user_import",
+            "stats_view")));
+        roles.put("auditor", new ArrayList<>(List.of("whitelist_view", "stats_view", "audit_view")));
+        roles.put("guest", new ArrayList<>());
+        return roles;
+    }
+
+    public int getHashIterations() {
+        return hashIterations;
+    }
+
+    /**
+     * 只修改了 hashIterations 的副本（其余字段加载后不再修改，可以共享）
+     */
+    LoginSettings withHashIterations(int iterations) {
+        try {
+            LoginSettings copy = (LoginSettings) clone();
+            copy.hashIterations = iterations;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public int getHashLatencyBudgetMillis() {
+        return hashLatencyBudgetMillis;
+    }
+
+    public String getAuthBackend() {
+        return authBackend;
+    }
+
+    public String getCaEndpoint() {
+        return caEndpoint;
+    }
+
+    public int getCaConnectTimeoutMillis() {
+        return caConnectTimeoutMillis;
+    }
+
+    public int getCaRequestTimeoutMillis() {
+        return caRequestTimeoutMillis;
+    }
+
+    public int getCaSlowCallMillis() {
+        return caSlowCallMillis;
+    }
+
+    public int getCaMaxInFlight() {
+        return caMaxInFlight;
+    }
+
+    public int getCaBreakerFailureThreshold() {
+        return caBreakerFailureThreshold;
+    }
+
+    public int getCaBreakerOpenMillis() {
+        return caBreakerOpenMillis;
+    }
+
+    public String getUuidMode() {
+        return uuidMode;
+    }
+
+    public boolean isDatabaseEnabled() {
+        return databaseEnabled;
+    }
+
+    public String getDatabaseFile() {
+        return databaseFile;
+    }
+
+    public int getDatabasePoolSize() {
+        return databasePoolSize;
+    }
+
+    public String getStoreBackend() {
+        return storeBackend;
+    }
+
+    public String getRedisHost() {
+        return redisHost;
+    }
+
+    public int getRedisPort() {
+        return redisPort;
+    }
+
+    public String getRedisPassword() {
+        return redisPassword;
+    }
+
+    public String getRedisKeyPrefix() {
+        return redisKeyPrefix;
+    }
+
+    public int getRedisTimeoutMillis() {
+        return redisTimeoutMillis;
+    }
+
+    public boolean isSessionResumeEnabled() {
+        return sessionResumeEnabled;
+    }
+
+    public int getSessionResumeTtlSeconds() {
+        return sessionResumeTtlSeconds;
+    }
+
+    public int getLoginRateCapacity() {
+        return loginRateCapacity;
+    }
+
+    public double getLoginRateRefillPerMinute() {
+        return loginRateRefillPerMinute;
+    }
+
+    public int getLoginLockoutBaseSeconds() {
+        return loginLockoutBaseSeconds;
+    }
+
+    public int getLoginLockoutMaxSeconds() {
+        return loginLockoutMaxSeconds;
+    }
+
+    public int getLoginRateMaxEntries() {
+        return loginRateMaxEntries;
+    }
+
+    public int getLoginAddressRateCapacity() {
+        return loginAddressRateCapacity;
+    }
+
+    public double getLoginAddressRateRefillPerMinute() {
+        return loginAddressRateRefillPerMinute;
+    }
+
+    public int getLoginMaxConcurrent() {
+        return loginMaxConcurrent;
+    }
+
+    public int getLoginQueueCapacity() {
+        return loginQueueCapacity;
+    }
+
+    public int getReminderCooldownTicks() {
+        return reminderCooldownTicks;
+    }
+
+    public boolean isLimboEnabled() {
+        return limboEnabled;
+    }
+
+    public int getLoginTimeoutSeconds() {
+        return loginTimeoutSeconds;
+    }
+
+    public boolean isHotReloadEnabled() {
+        return hotReloadEnabled;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public int getMetricsIntervalSeconds() {
+        return metricsIntervalSeconds;
+    }
+
+    public boolean isAuditEnabled() {
+        return auditEnabled;
+    }
+
+    public String getAuditDirectory() {
+        return auditDirectory;
+    }
+
+    public int getAuditBufferSize() {
+        return auditBufferSize;
+    }
+
+    public int getAuditSegmentMaxMegabytes() {
+        return auditSegmentMaxMegabytes;
+    }
+
+    public int getAuditRotateHours() {
+        return auditRotateHours;
+    }
+
+    public int getAuditMaxSegments() {
+        return auditMaxSegments;
+    }
+
+    public Map<String, List<String>> getRestrictions() {
+        return restrictions;
+    }
+
+    public List<String> getAllowedCommands() {
+        return allowedCommands;
+    }
+
+    public Map<String, List<String>> getRoles() {
+        return roles;
+    }
+}
@@ -0,0 +1,142 @@
+package com.hzcu.loginmod.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 名单中玩家名到 UUID 的解析
+ *
+ * 玩家第一次以名单中的名字加入时记下 (规范化名字, UUID)，保存在 hzculogin-uuids.json 中；
+ * 之后改名仍按 UUID 匹配，名字被其他账号使用也不会匹配。
+ * 离线模式下玩家的 UUID 由名字确定，尚未加入过的名字直接按离线规则推导。
+ */
+public final class PlayerIdCache {
+    public static final Path CACHE_PATH = Paths.get("config", "hzculogin-uuids.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // 已确认的绑定（玩家加入时观察到的 UUID），键为规范化后的名字
+    private static final Map<String, UUID> bound = new ConcurrentHashMap<>();
+    // 离线模式下推导出的 UUID，只缓存在内存中
+    private static final Map<String, UUID> derived = new ConcurrentHashMap<>();
+    private static volatile boolean offlineMode = false;
+
+    private PlayerIdCache() {
+    }
+
+    /**
+     * 离线模式下的 UUID，与服务器为离线玩家分配的 UUID 相同（区分大小写）
+     */
+    public static UUID offlineId(String playerName) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + playerName).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void setOfflineMode(boolean offline) {
+        offlineMode = offline;
+        if (!offline) {
+            derived.clear();
+        }
+    }
+
+    /**
+     * 名单中的名字对应的 UUID：优先使用已确认的绑定，离线模式下按名单中的写法推导，无法解析时返回 null
+     */
+    static UUID lookup(String playerName) {
+        String key = WhitelistConfig.normalize(playerName);
+        UUID id = bound.get(key);
+        if (id != null || !offlineMode) {
+            return id;
+        }
+        return derived.computeIfAbsent(key, ignored -> offlineId(playerName.trim()));
+    }
+
+    /**
+     * 已确认的绑定，没有时返回 null
+     */
+    static UUID boundId(String normalizedName) {
+        return bound.get(normalizedName);
+    }
+
+    static void bind(String normalizedName, UUID id) {
+        bound.put(normalizedName, id);
+    }
+
+    /**
+     * 移除绑定（名字已不在任何名单中）
+     *
+     * @return 是否存在该绑定
+     */
+    static boolean forget(String normalizedName) {
+        derived.remove(normalizedName);
+        return bound.remove(normalizedName) != null;
+    }
+
+    static int size() {
+        return bound.size();
+    }
+
+    /**
+     * 从文件读取绑定，文件损坏时从空表开始，之后玩家加入时重新绑定
+     */
+    static void load() {
+        bound.clear();
+        derived.clear();
+        if (!Files.exists(CACHE_PATH)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(CACHE_PATH, StandardCharsets.UTF_8)) {
+            Map<String, String> entries = GSON.fromJson(reader, new TypeToken<Map<String, String>>() { }.getType());
+            if (entries == null) {
+                return;
+            }
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                try {
+                    bound.put(WhitelistConfig.normalize(entry.getKey()), UUID.fromString(entry.getValue()));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    LoginMod.LOGGER.warn("忽略 {} 中无效的 UUID: {} = {}", CACHE_PATH, entry.getKey(), entry.getValue());
+                }
+            }
+            LoginMod.LOGGER.info("加载了 {} 个玩家名到 UUID 的绑定", bound.size());
+        } catch (IOException | JsonSyntaxException e) {
+            LoginMod.LOGGER.error("读取 {} 时出错，将在玩家加入时重新绑定: {}", CACHE_PATH, e.getMessage());
+        }
+    }
+
+    /**
+     * 写入临时文件后原子替换（只由配置写入线程调用）
+     */
+    static void save() {
+        Map<String, String> entries = new TreeMap<>();
+        bound.forEach((name, id) -> entries.put(name, id.toString()));
+        Path tempPath = CACHE_PATH.resolveSibling(CACHE_PATH.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                GSON.toJson(entries, writer);
+            }
+            try {
+                Files.move(tempPath, CACHE_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, CACHE_PATH, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | JsonIOException e) {
+            LoginMod.LOGGER.error("保存 {} 时出错: {}", CACHE_PATH, e.getMessage());
+        }
+    }
+}
@@ -2,29 +2,95 @@ package com.hzcu.loginmod.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
 import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.db.LoginDatabase;
+import com.hzcu.loginmod.policy.PermissionPolicy;
+import com.hzcu.loginmod.policy.RestrictionPolicy;
+import com.hzcu.loginmod.store.DirectoryList;
+import com.hzcu.loginmod.store.Stores;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 白名单配置管理类
  * 管理不需要登录的用户列表
+ * 
+ * 读操作只访问一个不可变快照，加载和修改时构建新快照后一次性替换，
+ * 因此查询无需加锁，也不会读到加载了一半的数据
+ * 
+ * 修改只替换内存中的快照并记一次待写入的变更，由后台写入线程在短暂延迟后合并写盘：
+ * 先流式写入临时文件并 fsync，再原子替换原文件，写到一半崩溃也不会损坏配置。
+ * 服务器停止时调用 flush() 写出尚未落盘的修改。
+ * 
+ * 启用内嵌数据库后名单改为保存在数据库中，每次修改只在写入线程上更新一行，hzculogin.json 只提供设置。
+ * 
+ * 名单仍以玩家名保存，快照中另有解析后的 UUID 集合（见 PlayerIdCache），在线玩家的检查只按 UUID 查询。
+ * administrators 中的玩家拥有 admin 角色，其余角色的成员在 roleMembers 中配置（只保存在配置文件中）；
+ * 快照中预先算好每个有角色的玩家的权限掩码。
  */
 public class WhitelistConfig {
     private static final String CONFIG_DIR = "config";
     private static final String CONFIG_FILE = "hzculogin.json";
-    private static final Path CONFIG_PATH = Paths.get(CONFIG_DIR, CONFIG_FILE);
+    public static final Path CONFIG_PATH = Paths.get(CONFIG_DIR, CONFIG_FILE);
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final long FLUSH_DELAY_MILLIS = 500;
+    private static final String LIST_MIGRATION = "hzculogin.json";
     
-    private static WhitelistData whitelistData = new WhitelistData();
+    // 写操作（修改、重新加载）之间互斥，读操作不加锁
+    private static final Object WRITE_LOCK = new Object();
+    
+    // 写文件之间互斥（后台写入和停服时的同步写入）
+    private static final Object FILE_LOCK = new Object();
+    
+    private static volatile Snapshot snapshot = new Snapshot(new WhitelistData());
+    
+    // 尚未写盘的修改次数，以及是否已经安排了一次写入
+    private static final AtomicInteger pendingChanges = new AtomicInteger();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // 名字到 UUID 的绑定是否有尚未写盘的修改
+    private static final AtomicBoolean idsChanged = new AtomicBoolean();
+    // 本进程最后一次写入后配置文件的修改时间
+    private static volatile FileTime lastWrittenTime;
+    // 启用内嵌数据库时名单的存储位置，为 null 时名单保存在配置文件中
+    private static volatile LoginDatabase database;
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hzculogin-config-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     /**
      * 白名单数据结构
@@ -32,11 +98,188 @@ public class WhitelistConfig {
     private static class WhitelistData {
         private List<String> whitelistedPlayers = new ArrayList<>();
         private List<String> administrators = new ArrayList<>();
+        // 角色名到成员的映射（admin 角色的成员是 administrators）
+        private Map<String, List<String>> roleMembers = new LinkedHashMap<>();
+        private LoginSettings settings = new LoginSettings();
         
         public WhitelistData() {
             // 默认管理员列表（可以根据需要修改）
             administrators.add("admin");
+            roleMembers.put(PermissionPolicy.OPERATOR, new ArrayList<>());
+            roleMembers.put(PermissionPolicy.AUDITOR, new ArrayList<>());
+        }
+        
+        public WhitelistData(List<String> whitelistedPlayers, List<String> administrators,
+                             Map<String, List<String>> roleMembers, LoginSettings settings) {
+            this.whitelistedPlayers = whitelistedPlayers;
+            this.administrators = administrators;
+            this.roleMembers = roleMembers;
+            this.settings = settings;
+        }
+    }
+    
+    /**
+     * 白名单的不可变快照
+     * 列表保留原始大小写用于展示和保存，集合存放规范化后的名字用于 O(1) 查询，
+     * 以及已解析的 UUID 用于在线玩家的检查
+     */
+    private static final class Snapshot {
+        private final List<String> whitelistedPlayers;
+        private final List<String> administrators;
+        private final Set<String> whitelistIndex;
+        private final Set<String> administratorIndex;
+        private final Set<UUID> whitelistIds;
+        private final Set<UUID> administratorIds;
+        private final Map<String, List<String>> roleMembers;
+        // 所有角色成员规范化后的名字
+        private final Set<String> roleIndex;
+        private final LoginSettings settings;
+        private final RestrictionPolicy policy;
+        private final PermissionPolicy permissions;
+        // 有角色的玩家的权限掩码（不含 guest 角色的权限）
+        private final Map<UUID, Integer> permissionMasks;
+        // 按名字排序的名单，第一次分页查看时生成
+        private volatile List<String> sortedWhitelist;
+        private volatile List<String> sortedAdministrators;
+        
+        private Snapshot(WhitelistData data) {
+            this(data, null);
+        }
+        
+        // 只修改名单时沿用 compiled 中已编译的策略，设置没有变化
+        private Snapshot(WhitelistData data, Snapshot compiled) {
+            this.whitelistedPlayers = List.copyOf(dedupe(data.whitelistedPlayers));
+            this.administrators = List.copyOf(dedupe(data.administrators));
+            this.whitelistIndex = index(whitelistedPlayers);
+            this.administratorIndex = index(administrators);
+            this.whitelistIds = ids(whitelistedPlayers);
+            this.administratorIds = ids(administrators);
+            this.roleMembers = dedupeRoles(data.roleMembers);
+            this.roleIndex = index(roleMembers);
+            this.settings = data.settings != null ? data.settings : new LoginSettings();
+            this.policy = compiled != null ? compiled.policy : RestrictionPolicy.compile(settings);
+            this.permissions = compiled != null ? compiled.permissions : PermissionPolicy.compile(settings);
+            this.permissionMasks = permissionMasks(administrators, roleMembers, permissions);
+        }
+        
+        // 名单不变，只重新解析 UUID（绑定或离线模式变化后）
+        private Snapshot(Snapshot base) {
+            this.whitelistedPlayers = base.whitelistedPlayers;
+            this.administrators = base.administrators;
+            this.whitelistIndex = base.whitelistIndex;
+            this.administratorIndex = base.administratorIndex;
+            this.whitelistIds = ids(whitelistedPlayers);
+            this.administratorIds = ids(administrators);
+            this.roleMembers = base.roleMembers;
+            this.roleIndex = base.roleIndex;
+            this.settings = base.settings;
+            this.policy = base.policy;
+            this.permissions = base.permissions;
+            this.permissionMasks = permissionMasks(administrators, roleMembers, permissions);
+            this.sortedWhitelist = base.sortedWhitelist;
+            this.sortedAdministrators = base.sortedAdministrators;
+        }
+        
+        private static List<String> sorted(List<String> names) {
+            List<String> sorted = new ArrayList<>(names);
+            sorted.sort(String.CASE_INSENSITIVE_ORDER);
+            return Collections.unmodifiableList(sorted);
+        }
+        
+        private WhitelistData toData() {
+            return new WhitelistData(new ArrayList<>(whitelistedPlayers), new ArrayList<>(administrators),
+                copyRoles(roleMembers), settings);
+        }
+        
+        private static Map<String, List<String>> copyRoles(Map<String, List<String>> roles) {
+            Map<String, List<String>> copy = new LinkedHashMap<>();
+            roles.forEach((role, names) -> copy.put(role, new ArrayList<>(names)));
+            return copy;
+        }
+        
+        private static Map<String, List<String>> dedupeRoles(Map<String, List<String>> roles) {
+            Map<String, List<String>> result = new LinkedHashMap<>();
+            if (roles == null) {
+                return result;
+            }
+            for (Map.Entry<String, List<String>> entry : roles.entrySet()) {
+                if (entry.getKey() != null && !entry.getKey().isBlank()) {
+                    result.put(PermissionPolicy.normalizeRole(entry.getKey()), List.copyOf(dedupe(entry.getValue())));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        }
+        
+        private static Set<String> index(Map<String, List<String>> roles) {
+            Set<String> normalized = new HashSet<>();
+            for (List<String> names : roles.values()) {
+                normalized.addAll(index(names));
+            }
+            return Set.copyOf(normalized);
+        }
+        
+        /**
+         * 每个已解析 UUID 的玩家所有角色权限的并集
+         */
+        private static Map<UUID, Integer> permissionMasks(List<String> administrators,
+                                                          Map<String, List<String>> roleMembers,
+                                                          PermissionPolicy permissions) {
+            Map<UUID, Integer> masks = new HashMap<>();
+            grant(masks, administrators, permissions.maskFor(PermissionPolicy.ADMIN));
+            for (Map.Entry<String, List<String>> entry : roleMembers.entrySet()) {
+                grant(masks, entry.getValue(), permissions.maskFor(entry.getKey()));
+            }
+            return Map.copyOf(masks);
+        }
+        
+        private static void grant(Map<UUID, Integer> masks, List<String> names, int mask) {
+            for (String name : names) {
+                UUID id = PlayerIdCache.lookup(name);
+                if (id != null) {
+                    masks.merge(id, mask, (a, b) -> a | b);
+                }
+            }
+        }
+        
+        private static List<String> dedupe(List<String> names) {
+            List<String> result = new ArrayList<>();
+            if (names == null) {
+                return result;
+            }
+            Set<String> seen = new HashSet<>();
+            for (String name : names) {
+                if (name != null && !name.isBlank() && seen.add(normalize(name))) {
+                    result.add(name.trim());
+                }
+            }
+            return result;
+        }
+        
+        private static Set<String> index(List<String> names) {
+            Set<String> normalized = new HashSet<>(names.size() * 2);
+            for (String name : names) {
+                normalized.add(normalize(name));
+            }
+            return Set.copyOf(normalized);
         }
+        
+        private static Set<UUID> ids(List<String> names) {
+            Set<UUID> ids = new HashSet<>(names.size() * 2);
+            for (String name : names) {
+                UUID id = PlayerIdCache.lookup(name);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            return Set.copyOf(ids);
+        }
+    }
+    
+    /**
+     * 规范化玩家名（Minecraft 玩家名不区分大小写）
+     */
+    public static String normalize(String playerName) {
+        return playerName.trim().toLowerCase(Locale.ROOT);
     }
     
     /**
@@ -51,9 +294,12 @@ public class WhitelistConfig {
                 LoginMod.LOGGER.info("创建配置目录: {}", CONFIG_DIR);
             }
             
+            // 先读取名字到 UUID 的绑定，加载名单时直接解析
+            PlayerIdCache.load();
+            
             // 加载或创建配置文件
             if (Files.exists(CONFIG_PATH)) {
-                loadConfig();
+                loadConfig(true);
             } else {
                 saveConfig();
                 LoginMod.LOGGER.info("创建默认白名单配置文件: {}", CONFIG_PATH);
@@ -65,126 +311,554 @@ public class WhitelistConfig {
     
     /**
      * 从文件加载配置
+     * 首次加载失败时使用默认配置；重新加载失败时保留当前配置，避免编辑到一半的文件清空白名单
      */
-    private static void loadConfig() {
+    private static void loadConfig(boolean initial) {
+        // 先在局部变量中完成解析和索引构建，再一次性发布
+        Snapshot loaded;
         try (Reader reader = Files.newBufferedReader(CONFIG_PATH)) {
-            WhitelistData loaded = GSON.fromJson(reader, WhitelistData.class);
-            if (loaded != null) {
-                whitelistData = loaded;
-                LoginMod.LOGGER.info("成功加载白名单配置，包含 {} 个白名单用户和 {} 个管理员", 
-                    whitelistData.whitelistedPlayers.size(), 
-                    whitelistData.administrators.size());
+            WhitelistData data = GSON.fromJson(reader, WhitelistData.class);
+            if (data == null) {
+                return;
             }
+            loaded = new Snapshot(data);
         } catch (IOException | JsonSyntaxException e) {
+            if (!initial) {
+                LoginMod.LOGGER.error("重新加载白名单配置时出错，保留当前配置: {}", e.getMessage());
+                return;
+            }
             LoginMod.LOGGER.error("加载白名单配置时出错，使用默认配置", e);
-            whitelistData = new WhitelistData();
+            loaded = new Snapshot(new WhitelistData());
+        }
+        
+        Snapshot previous;
+        synchronized (WRITE_LOCK) {
+            previous = snapshot;
+            if (database != null) {
+                // 名单以数据库为准，只采用文件中的设置
+                loaded = new Snapshot(new WhitelistData(new ArrayList<>(previous.whitelistedPlayers),
+                    new ArrayList<>(previous.administrators), loaded.roleMembers, loaded.settings), loaded);
+            }
+            snapshot = loaded;
+        }
+        for (String role : loaded.roleMembers.keySet()) {
+            if (!loaded.permissions.isDefined(role)) {
+                LoginMod.LOGGER.warn("roleMembers 中的角色 {} 没有在 roles 中定义，其成员没有任何权限", role);
+            }
+        }
+        if (initial) {
+            LoginMod.LOGGER.info("成功加载白名单配置，包含 {} 个白名单用户和 {} 个管理员", 
+                loaded.whitelistedPlayers.size(), 
+                loaded.administrators.size());
+        } else {
+            logDiff(previous, loaded);
+        }
+    }
+    
+    /**
+     * 记录两次加载之间的变化
+     */
+    private static void logDiff(Snapshot previous, Snapshot loaded) {
+        boolean settingsChanged = !GSON.toJson(previous.settings).equals(GSON.toJson(loaded.settings));
+        LoginMod.LOGGER.info("白名单配置已重新加载: 白名单 +{} -{}，管理员 +{} -{}{}{}",
+            countMissing(loaded.whitelistIndex, previous.whitelistIndex),
+            countMissing(previous.whitelistIndex, loaded.whitelistIndex),
+            countMissing(loaded.administratorIndex, previous.administratorIndex),
+            countMissing(previous.administratorIndex, loaded.administratorIndex),
+            previous.roleMembers.equals(loaded.roleMembers) ? "" : "，角色成员已变化",
+            settingsChanged ? "，设置已变化（操作限制和角色权限立即生效，其余设置重启后生效）" : "");
+    }
+    
+    private static int countMissing(Set<String> names, Set<String> other) {
+        int count = 0;
+        for (String name : names) {
+            if (!other.contains(name)) {
+                count++;
+            }
         }
+        return count;
     }
     
     /**
-     * 保存配置到文件
+     * 立即把当前快照写入文件（仅用于创建默认配置）
      */
     private static void saveConfig() {
-        try (Writer writer = Files.newBufferedWriter(CONFIG_PATH)) {
-            GSON.toJson(whitelistData, writer);
-            LoginMod.LOGGER.info("白名单配置已保存到: {}", CONFIG_PATH);
+        synchronized (FILE_LOCK) {
+            if (writeConfig(snapshot)) {
+                LoginMod.LOGGER.info("白名单配置已保存到: {}", CONFIG_PATH);
+            }
+        }
+    }
+    
+    /**
+     * 记录一次修改，并在没有待执行的写入时安排一次延迟写入
+     * 延迟期间的多次修改合并为一次写盘
+     */
+    private static void scheduleSave() {
+        pendingChanges.incrementAndGet();
+        if (flushScheduled.compareAndSet(false, true)) {
+            WRITER.schedule(WhitelistConfig::runScheduledFlush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * 绑定变化后安排一次写盘，与名单修改合并
+     */
+    private static void scheduleIdSave() {
+        idsChanged.set(true);
+        if (flushScheduled.compareAndSet(false, true)) {
+            WRITER.schedule(WhitelistConfig::runScheduledFlush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private static void runScheduledFlush() {
+        // 先清除标记再写入，写入期间的新修改会安排下一次写入
+        flushScheduled.set(false);
+        flush();
+    }
+    
+    /**
+     * 把尚未写盘的修改写入文件（服务器停止时调用，也可随时调用）
+     */
+    public static void flush() {
+        synchronized (FILE_LOCK) {
+            if (idsChanged.getAndSet(false)) {
+                PlayerIdCache.save();
+            }
+            int changes = pendingChanges.getAndSet(0);
+            if (changes == 0) {
+                return;
+            }
+            // 修改先替换快照再计数，此时读到的快照一定包含上面统计的所有修改
+            if (writeConfig(snapshot)) {
+                LoginMod.LOGGER.debug("白名单配置已保存，合并了 {} 次修改", changes);
+            } else {
+                // 写入失败时保留计数，下一次修改或停服时重试
+                pendingChanges.addAndGet(changes);
+            }
+        }
+    }
+    
+    /**
+     * 流式写入临时文件、fsync 后原子替换配置文件
+     */
+    private static boolean writeConfig(Snapshot current) {
+        Path tempPath = CONFIG_PATH.resolveSibling(CONFIG_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            JsonWriter writer = new JsonWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)));
+            writer.setIndent("  ");
+            writer.beginObject();
+            writeNames(writer, "whitelistedPlayers", current.whitelistedPlayers);
+            writeNames(writer, "administrators", current.administrators);
+            writer.name("roleMembers");
+            writer.beginObject();
+            for (Map.Entry<String, List<String>> entry : current.roleMembers.entrySet()) {
+                writeNames(writer, entry.getKey(), entry.getValue());
+            }
+            writer.endObject();
+            writer.name("settings");
+            GSON.toJson(current.settings, LoginSettings.class, writer);
+            writer.endObject();
+            writer.flush();
+            channel.force(true);
+        } catch (IOException | JsonIOException e) {
+            LoginMod.LOGGER.error("保存白名单配置时出错", e);
+            return false;
+        }
+        
+        try {
+            try {
+                Files.move(tempPath, CONFIG_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, CONFIG_PATH, StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastWrittenTime = Files.getLastModifiedTime(CONFIG_PATH);
+            return true;
         } catch (IOException e) {
             LoginMod.LOGGER.error("保存白名单配置时出错", e);
+            return false;
         }
     }
     
+    private static void writeNames(JsonWriter writer, String field, List<String> names) throws IOException {
+        writer.name(field);
+        writer.beginArray();
+        for (String name : names) {
+            writer.value(name);
+        }
+        writer.endArray();
+    }
+    
     /**
      * 重新加载配置
+     * 先写出尚未落盘的修改，与修改后立即保存时的行为一致
      */
     public static void reload() {
-        loadConfig();
+        flush();
+        loadConfig(false);
     }
     
     /**
-     * 检查玩家是否在白名单中
+     * 配置文件被外部修改后重新加载（由文件监视线程调用）
+     * 文件内容优先；本进程自己写入引起的通知会被忽略
+     *
+     * @return 是否重新加载了配置
+     */
+    public static boolean reloadIfModified() {
+        try {
+            if (Files.getLastModifiedTime(CONFIG_PATH).equals(lastWrittenTime)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        
+        int unsaved = pendingChanges.get();
+        if (unsaved > 0) {
+            LoginMod.LOGGER.warn("hzculogin.json 被外部修改，{} 次尚未保存的修改将被文件内容覆盖", unsaved);
+        }
+        loadConfig(false);
+        return true;
+    }
+    
+    /**
+     * 改为使用数据库保存名单（服务器启动时调用）
+     * 数据库中还没有名单时把当前 hzculogin.json 中的名单一次性导入，否则以数据库中的名单为准
+     */
+    public static void attachDatabase(LoginDatabase db) {
+        synchronized (WRITE_LOCK) {
+            Snapshot current = snapshot;
+            try {
+                if (!db.isMigrated(LIST_MIGRATION)) {
+                    db.replaceList(DirectoryList.WHITELIST, current.whitelistedPlayers);
+                    db.replaceList(DirectoryList.ADMINISTRATORS, current.administrators);
+                    db.markMigrated(LIST_MIGRATION);
+                    LoginMod.LOGGER.info("已将 {} 中的 {} 个白名单用户和 {} 个管理员导入数据库，此后文件中的名单不再使用",
+                        CONFIG_PATH, current.whitelistedPlayers.size(), current.administrators.size());
+                } else {
+                    Snapshot loaded = new Snapshot(new WhitelistData(db.loadList(DirectoryList.WHITELIST),
+                        db.loadList(DirectoryList.ADMINISTRATORS), Snapshot.copyRoles(current.roleMembers),
+                        current.settings), current);
+                    snapshot = loaded;
+                    LoginMod.LOGGER.info("从数据库加载了 {} 个白名单用户和 {} 个管理员",
+                        loaded.whitelistedPlayers.size(), loaded.administrators.size());
+                }
+                database = db;
+            } catch (SQLException e) {
+                LoginMod.LOGGER.error("从数据库加载名单时出错，继续使用 {} 中的名单: {}", CONFIG_PATH, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 等待尚未完成的名单写入后停止使用数据库（服务器停止时调用，之后才能关闭数据库）
+     */
+    public static void detachDatabase() {
+        if (database == null) {
+            return;
+        }
+        try {
+            // 写入线程按提交顺序执行，空任务完成时之前的写入都已完成
+            WRITER.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LoginMod.LOGGER.warn("名单写入未在停服前全部完成");
+        }
+        database = null;
+    }
+    
+    /**
+     * 获取模组设置
+     */
+    public static LoginSettings getSettings() {
+        return snapshot.settings;
+    }
+    
+    /**
+     * 把启动时校准的密码哈希迭代次数写回配置文件，之后的启动直接使用该值
+     * 管理员在此期间已手动指定时不覆盖
+     */
+    public static void saveHashIterations(int iterations) {
+        synchronized (WRITE_LOCK) {
+            Snapshot current = snapshot;
+            if (current.settings.getHashIterations() > 0) {
+                return;
+            }
+            WhitelistData data = current.toData();
+            data.settings = current.settings.withHashIterations(iterations);
+            snapshot = new Snapshot(data, current);
+            scheduleSave();
+        }
+    }
+    
+    /**
+     * 获取加载配置时编译好的操作限制策略
+     */
+    public static RestrictionPolicy getRestrictionPolicy() {
+        return snapshot.policy;
+    }
+    
+    /**
+     * 按名字检查是否在白名单中（用于尚未加入的玩家，在线玩家应使用 UUID）
      */
     public static boolean isWhitelisted(String playerName) {
-        return whitelistData.whitelistedPlayers.contains(playerName);
+        return snapshot.whitelistIndex.contains(normalize(playerName));
     }
     
     /**
-     * 检查玩家是否是管理员
+     * 按名字检查是否是管理员（用于尚未加入的玩家，在线玩家应使用 UUID）
      */
     public static boolean isAdministrator(String playerName) {
-        return whitelistData.administrators.contains(playerName);
+        return snapshot.administratorIndex.contains(normalize(playerName));
     }
     
     /**
-     * 添加玩家到白名单
+     * 检查玩家是否在白名单中
      */
-    public static boolean addToWhitelist(String playerName) {
-        if (whitelistData.whitelistedPlayers.contains(playerName)) {
-            return false; // 已存在
+    public static boolean isWhitelisted(UUID playerUUID) {
+        return snapshot.whitelistIds.contains(playerUUID);
+    }
+    
+    /**
+     * 检查玩家是否是管理员
+     */
+    public static boolean isAdministrator(UUID playerUUID) {
+        return snapshot.administratorIds.contains(playerUUID);
+    }
+    
+    /**
+     * 计算玩家的权限掩码（有角色时为各角色权限的并集，再加上 guest 角色的权限）
+     * 在线玩家的检查应使用 PlayerPermissions 中缓存的结果
+     */
+    public static int permissionsOf(UUID playerUUID) {
+        Snapshot current = snapshot;
+        Integer mask = current.permissionMasks.get(playerUUID);
+        int guest = current.permissions.maskFor(PermissionPolicy.GUEST);
+        return mask != null ? mask | guest : guest;
+    }
+    
+    /**
+     * 获取各角色的成员（不含 admin 角色的 administrators，不可变）
+     */
+    public static Map<String, List<String>> getRoleMembers() {
+        return snapshot.roleMembers;
+    }
+    
+    /**
+     * 设置服务器是否为离线模式（服务器启动时调用），离线模式下尚未加入过的名字按离线规则推导 UUID
+     */
+    public static void setOfflineMode(boolean offline) {
+        synchronized (WRITE_LOCK) {
+            PlayerIdCache.setOfflineMode(offline);
+            snapshot = new Snapshot(snapshot);
+        }
+    }
+    
+    /**
+     * 玩家加入时把名单中的同名条目绑定到该玩家的 UUID（必须在玩家加入时调用）
+     * 名字已绑定过时不再修改，改名后被其他账号使用的名字因此不会匹配
+     *
+     * @return 是否新绑定了该玩家（此时白名单或管理员身份可能发生了变化）
+     */
+    public static boolean resolve(UUID playerUUID, String playerName) {
+        String key = normalize(playerName);
+        Snapshot current = snapshot;
+        if (!current.whitelistIndex.contains(key) && !current.administratorIndex.contains(key)
+                && !current.roleIndex.contains(key)) {
+            return false;
         }
-        whitelistData.whitelistedPlayers.add(playerName);
-        saveConfig();
+        synchronized (WRITE_LOCK) {
+            if (PlayerIdCache.boundId(key) != null) {
+                return false;
+            }
+            PlayerIdCache.bind(key, playerUUID);
+            snapshot = new Snapshot(snapshot);
+        }
+        scheduleIdSave();
+        LoginMod.LOGGER.info("名单中的 {} 已绑定到 UUID {}", playerName, playerUUID);
         return true;
     }
     
+    /**
+     * 添加玩家到白名单
+     */
+    public static boolean addToWhitelist(String playerName) {
+        return changeAndPublish(DirectoryList.WHITELIST, playerName, true);
+    }
+    
     /**
      * 从白名单移除玩家
      */
     public static boolean removeFromWhitelist(String playerName) {
-        boolean removed = whitelistData.whitelistedPlayers.remove(playerName);
-        if (removed) {
-            saveConfig();
-        }
-        return removed;
+        return changeAndPublish(DirectoryList.WHITELIST, playerName, false);
     }
     
     /**
      * 添加管理员
      */
     public static boolean addAdministrator(String playerName) {
-        if (whitelistData.administrators.contains(playerName)) {
-            return false; // 已存在
-        }
-        whitelistData.administrators.add(playerName);
-        saveConfig();
-        return true;
+        return changeAndPublish(DirectoryList.ADMINISTRATORS, playerName, true);
     }
     
     /**
      * 移除管理员
      */
     public static boolean removeAdministrator(String playerName) {
-        boolean removed = whitelistData.administrators.remove(playerName);
-        if (removed) {
-            saveConfig();
+        return changeAndPublish(DirectoryList.ADMINISTRATORS, playerName, false);
+    }
+    
+    /**
+     * 修改本地名单，并通过共享存储通知其他服务器
+     */
+    private static boolean changeAndPublish(DirectoryList list, String playerName, boolean add) {
+        if (!change(list, playerName, add)) {
+            return false;
+        }
+        Stores.directory().publish(list, playerName, add);
+        return true;
+    }
+    
+    /**
+     * 应用其他服务器发来的名单修改（不再转发）
+     *
+     * @return 本地名单发生了变化时返回 true
+     */
+    public static boolean applyRemoteChange(DirectoryList list, String playerName, boolean add) {
+        return change(list, playerName, add);
+    }
+    
+    private static boolean change(DirectoryList list, String playerName, boolean add) {
+        synchronized (WRITE_LOCK) {
+            Snapshot current = snapshot;
+            Set<String> index = list == DirectoryList.WHITELIST ? current.whitelistIndex : current.administratorIndex;
+            if (index.contains(normalize(playerName)) == add) {
+                return false; // 已存在或不存在
+            }
+            WhitelistData data = current.toData();
+            List<String> names = list == DirectoryList.WHITELIST ? data.whitelistedPlayers : data.administrators;
+            if (add) {
+                names.add(playerName);
+            } else {
+                names.removeIf(name -> normalize(name).equals(normalize(playerName)));
+            }
+            Snapshot changed = new Snapshot(data, current);
+            String key = normalize(playerName);
+            if (!add && !changed.whitelistIndex.contains(key) && !changed.administratorIndex.contains(key)
+                    && !changed.roleIndex.contains(key)
+                    && PlayerIdCache.forget(key)) {
+                // 名字已不在任何名单中，重新添加后由下一个以该名字加入的玩家重新绑定
+                scheduleIdSave();
+            }
+            snapshot = changed;
+            persistChange(list, playerName, add);
+            return true;
+        }
+    }
+    
+    /**
+     * 保存一次名单修改：数据库模式下在写入线程上更新一行，否则安排一次配置文件写入
+     */
+    private static void persistChange(DirectoryList list, String playerName, boolean add) {
+        LoginDatabase db = database;
+        if (db == null) {
+            scheduleSave();
+            return;
         }
-        return removed;
+        WRITER.execute(() -> {
+            try {
+                db.updateList(list, playerName, add);
+            } catch (SQLException e) {
+                LoginMod.LOGGER.error("保存名单修改（{} {}）到数据库时出错: {}", list.key(), playerName, e.getMessage());
+            }
+        });
     }
     
     /**
-     * 获取所有白名单玩家
+     * 用共享存储中的完整名单替换本地名单（连接共享存储时调用）
+     *
+     * @return 本地名单发生了变化时返回 true
+     */
+    public static boolean replaceLists(List<String> whitelistedPlayers, List<String> administrators) {
+        synchronized (WRITE_LOCK) {
+            Snapshot current = snapshot;
+            Snapshot replaced = new Snapshot(new WhitelistData(new ArrayList<>(whitelistedPlayers),
+                new ArrayList<>(administrators), Snapshot.copyRoles(current.roleMembers), current.settings), current);
+            if (replaced.whitelistIndex.equals(current.whitelistIndex)
+                    && replaced.administratorIndex.equals(current.administratorIndex)) {
+                return false;
+            }
+            snapshot = replaced;
+            LoginDatabase db = database;
+            if (db == null) {
+                scheduleSave();
+            } else {
+                WRITER.execute(() -> {
+                    try {
+                        db.replaceList(DirectoryList.WHITELIST, replaced.whitelistedPlayers);
+                        db.replaceList(DirectoryList.ADMINISTRATORS, replaced.administrators);
+                    } catch (SQLException e) {
+                        LoginMod.LOGGER.error("保存名单到数据库时出错: {}", e.getMessage());
+                    }
+                });
+            }
+            logDiff(current, replaced);
+            return true;
+        }
+    }
+    
+    /**
+     * 获取所有白名单玩家（不可变列表）
      */
     public static List<String> getWhitelistedPlayers() {
-        return new ArrayList<>(whitelistData.whitelistedPlayers);
+        return snapshot.whitelistedPlayers;
     }
     
     /**
-     * 获取所有管理员
+     * 获取所有管理员（不可变列表）
      */
     public static List<String> getAdministrators() {
-        return new ArrayList<>(whitelistData.administrators);
+        return snapshot.administrators;
     }
     
     /**
      * 获取白名单玩家数量
      */
     public static int getWhitelistCount() {
-        return whitelistData.whitelistedPlayers.size();
+        return snapshot.whitelistedPlayers.size();
+    }
+    
+    /**
+     * 按名字排序（不区分大小写）的白名单玩家，每个快照只排序一次（不可变列表）
+     */
+    public static List<String> getSortedWhitelistedPlayers() {
+        Snapshot current = snapshot;
+        List<String> sorted = current.sortedWhitelist;
+        if (sorted == null) {
+            sorted = Snapshot.sorted(current.whitelistedPlayers);
+            current.sortedWhitelist = sorted;
+        }
+        return sorted;
+    }
+    
+    /**
+     * 按名字排序（不区分大小写）的管理员，每个快照只排序一次（不可变列表）
+     */
+    public static List<String> getSortedAdministrators() {
+        Snapshot current = snapshot;
+        List<String> sorted = current.sortedAdministrators;
+        if (sorted == null) {
+            sorted = Snapshot.sorted(current.administrators);
+            current.sortedAdministrators = sorted;
+        }
+        return sorted;
     }
     
     /**
      * 获取管理员数量
      */
     public static int getAdministratorCount() {
-        return whitelistData.administrators.size();
+        return snapshot.administrators.size();
     }
 }
@@ -0,0 +1,104 @@
+package com.hzcu.loginmod.db;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固定大小的 JDBC 连接池
+ *
+ * 连接在首次需要时创建，用完后放回空闲队列；借出前检查连接是否仍然有效，
+ * 执行中出错的连接直接关闭而不放回。同时借出的连接数不超过 size，超时未借到时抛出异常。
+ */
+public final class ConnectionPool implements AutoCloseable {
+    private final Driver driver;
+    private final String url;
+    private final Properties properties;
+    private final long acquireTimeoutMillis;
+    private final BlockingQueue<Connection> idle;
+    private final Semaphore permits;
+    private volatile boolean closed = false;
+
+    /**
+     * 在借出的连接上执行的操作
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    public ConnectionPool(Driver driver, String url, Properties properties, int size, long acquireTimeoutMillis) {
+        this.driver = driver;
+        this.url = url;
+        this.properties = properties;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * 借出一个连接执行操作，完成后归还
+     * 操作必须在返回前恢复 autoCommit
+     */
+    public <T> T withConnection(Work<T> work) throws SQLException {
+        if (closed) {
+            throw new SQLException("connection pool closed");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("no database connection available within "
+                    + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a database connection");
+        }
+
+        Connection connection = idle.poll();
+        try {
+            if (connection == null || !connection.isValid(1)) {
+                closeQuietly(connection);
+                connection = driver.connect(url, properties);
+            }
+            T result = work.run(connection);
+            if (closed || !idle.offer(connection)) {
+                closeQuietly(connection);
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(connection);
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // 连接已经不可用，忽略关闭错误
+        }
+    }
+
+    /**
+     * 关闭所有空闲连接，借出中的连接在归还时关闭
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+}
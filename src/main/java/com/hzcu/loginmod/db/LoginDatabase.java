@@ -0,0 +1,274 @@
+package com.hzcu.loginmod.db;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.store.DirectoryList;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 内嵌的 H2 数据库，保存用户凭据和白名单/管理员名单
+ *
+ * 用户名和名单都以主键索引查询，所有语句都是预编译的参数化语句（H2 在每个连接内缓存编译结果）。
+ * 数据库以 AUTO_SERVER 模式打开：第一个打开的进程持有文件，同一台机器上的其他进程（另一台服务器、
+ * 命令行工具）自动通过本地 TCP 连接到它，多个进程可以安全地同时修改。
+ */
+public final class LoginDatabase implements AutoCloseable {
+    // 一次批量写入的最大行数
+    private static final int BATCH_SIZE = 1000;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 5000;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS users ("
+            + "username VARCHAR(64) PRIMARY KEY, "
+            + "password VARCHAR(255) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS directory ("
+            + "list_name VARCHAR(32) NOT NULL, "
+            + "name_key VARCHAR(64) NOT NULL, "
+            + "player_name VARCHAR(64) NOT NULL, "
+            + "PRIMARY KEY (list_name, name_key))",
+        // 记录已经完成的一次性迁移
+        "CREATE TABLE IF NOT EXISTS migrations ("
+            + "source VARCHAR(255) PRIMARY KEY, "
+            + "migrated_at TIMESTAMP NOT NULL)"
+    };
+
+    private final ConnectionPool pool;
+
+    private LoginDatabase(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 打开（不存在时创建）数据库文件并建立表结构
+     *
+     * @param path 数据库文件路径，不含 .mv.db 后缀
+     */
+    public static LoginDatabase open(Path path, int poolSize) throws SQLException {
+        String url = "jdbc:h2:file:" + path.toAbsolutePath() + ";AUTO_SERVER=TRUE";
+        // 直接使用驱动而不是 DriverManager，模组类加载器中的驱动不一定能被 DriverManager 发现
+        ConnectionPool pool = new ConnectionPool(new org.h2.Driver(), url, new Properties(),
+            Math.max(1, poolSize), ACQUIRE_TIMEOUT_MILLIS);
+        LoginDatabase database = new LoginDatabase(pool);
+        try {
+            pool.withConnection(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : SCHEMA) {
+                        statement.execute(sql);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+        LoginMod.LOGGER.info("已打开用户数据库 {}", path);
+        return database;
+    }
+
+    /**
+     * 查找用户名对应的密码记录，不存在时返回 null
+     */
+    public String findPassword(String username) throws SQLException {
+        return pool.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT password FROM users WHERE username = ?")) {
+                statement.setString(1, username);
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() ? result.getString(1) : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * 找出已存在的用户名，每 BATCH_SIZE 个用户名一条 IN 查询，共用一个连接
+     */
+    public Set<String> findExisting(Collection<String> usernames) throws SQLException {
+        List<String> names = new ArrayList<>(usernames);
+        return pool.withConnection(connection -> {
+            Set<String> existing = new HashSet<>();
+            for (int start = 0; start < names.size(); start += BATCH_SIZE) {
+                List<String> chunk = names.subList(start, Math.min(names.size(), start + BATCH_SIZE));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT username FROM users WHERE username IN (" + placeholders + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            existing.add(result.getString(1));
+                        }
+                    }
+                }
+            }
+            return existing;
+        });
+    }
+
+    public int countUsers() throws SQLException {
+        return pool.withConnection(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM users")) {
+                result.next();
+                return result.getInt(1);
+            }
+        });
+    }
+
+    /**
+     * 在一个事务中添加或覆盖用户
+     */
+    public void upsertUsers(Map<String, String> users) throws SQLException {
+        pool.withConnection(connection -> inTransaction(connection, () -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "MERGE INTO users (username, password) KEY (username) VALUES (?, ?)")) {
+                int pending = 0;
+                for (Map.Entry<String, String> entry : users.entrySet()) {
+                    statement.setString(1, entry.getKey());
+                    statement.setString(2, entry.getValue());
+                    statement.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+        }));
+    }
+
+    /**
+     * 读取一个名单（原始大小写，按加入顺序）
+     */
+    public List<String> loadList(DirectoryList list) throws SQLException {
+        return pool.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT player_name FROM directory WHERE list_name = ? ORDER BY _ROWID_")) {
+                statement.setString(1, list.key());
+                List<String> names = new ArrayList<>();
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        names.add(result.getString(1));
+                    }
+                }
+                return names;
+            }
+        });
+    }
+
+    /**
+     * 向名单添加或从名单移除一个玩家（不区分大小写）
+     */
+    public void updateList(DirectoryList list, String playerName, boolean add) throws SQLException {
+        pool.withConnection(connection -> {
+            String sql = add
+                ? "MERGE INTO directory (list_name, name_key, player_name) KEY (list_name, name_key) VALUES (?, ?, ?)"
+                : "DELETE FROM directory WHERE list_name = ? AND name_key = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, list.key());
+                statement.setString(2, WhitelistConfig.normalize(playerName));
+                if (add) {
+                    statement.setString(3, playerName);
+                }
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 在一个事务中用给定的玩家替换整个名单
+     */
+    public void replaceList(DirectoryList list, Collection<String> playerNames) throws SQLException {
+        pool.withConnection(connection -> inTransaction(connection, () -> {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM directory WHERE list_name = ?")) {
+                delete.setString(1, list.key());
+                delete.executeUpdate();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "MERGE INTO directory (list_name, name_key, player_name) KEY (list_name, name_key) VALUES (?, ?, ?)")) {
+                for (String playerName : playerNames) {
+                    insert.setString(1, list.key());
+                    insert.setString(2, WhitelistConfig.normalize(playerName));
+                    insert.setString(3, playerName);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }));
+    }
+
+    /**
+     * 检查某个来源是否已经迁移过
+     */
+    public boolean isMigrated(String source) throws SQLException {
+        return pool.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM migrations WHERE source = ?")) {
+                statement.setString(1, source);
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next();
+                }
+            }
+        });
+    }
+
+    /**
+     * 记录某个来源已经迁移，之后不再重复导入
+     */
+    public void markMigrated(String source) throws SQLException {
+        pool.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "MERGE INTO migrations (source, migrated_at) KEY (source) VALUES (?, CURRENT_TIMESTAMP)")) {
+                statement.setString(1, source);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface TransactionBody {
+        void run() throws SQLException;
+    }
+
+    /**
+     * 在事务中执行，失败时回滚；返回前恢复 autoCommit
+     */
+    private static Void inTransaction(Connection connection, TransactionBody body) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            body.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.hzcu.loginmod.event;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.audit.AuditType;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.message.LoginMessages;
+import com.hzcu.loginmod.policy.AuthState;
+import com.hzcu.loginmod.session.PlayerSession;
+import com.hzcu.loginmod.session.SessionRegistry;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * 未登录玩家的定期登录提醒和登录超时
+ * 移动本身由 UnauthenticatedPacketGate 在网络层拦截；
+ * 本处理器仅在至少有一个未登录玩家在线时由 LoginMod 注册到事件总线，全部登录后自动注销
+ */
+public class MovementRestrictionHandler {
+
+    /**
+     * 提醒未登录玩家登录
+     */
+    @SubscribeEvent
+    public void onPlayerTick(TickEvent.PlayerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || !(event.player instanceof ServerPlayer player)) {
+            return;
+        }
+
+        // 已登录玩家只需一次集合查询，不产生任何对象分配
+        if (!LoginMod.isPlayerPending(player.getUUID())) {
+            return;
+        }
+
+        // 每秒检查一次是否超时未登录
+        if (player.tickCount % 20 == 0 && isLoginTimedOut(player)) {
+            player.connection.disconnect(LoginMessages.KICK_LOGIN_TIMEOUT);
+            AuditLog.record(AuditType.TIMEOUT_KICK, player.getUUID(), player.getName().getString(), null,
+                player.getIpAddress(), null);
+            return;
+        }
+
+        // 每隔一段时间提醒玩家登录（避免刷屏）
+        if (player.tickCount % 100 == 0) {
+            LoginMessages.remind(player, LoginMessages.LOGIN_REMINDER);
+        }
+    }
+
+    /**
+     * 玩家加入后超过 loginTimeoutSeconds 仍未登录（正在验证的不算）
+     */
+    private static boolean isLoginTimedOut(ServerPlayer player) {
+        int timeoutSeconds = WhitelistConfig.getSettings().getLoginTimeoutSeconds();
+        if (timeoutSeconds <= 0) {
+            return false;
+        }
+        PlayerSession session = SessionRegistry.get(player.getUUID());
+        return session != null && session.state() != AuthState.AUTHENTICATING
+            && System.currentTimeMillis() - session.joinedAt() > timeoutSeconds * 1000L;
+    }
+}
@@ -1,10 +1,29 @@
 package com.hzcu.loginmod.event;
 
 import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.audit.AuditLog;
+import com.hzcu.loginmod.audit.AuditType;
+import com.hzcu.loginmod.command.LoginCommand;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.limbo.LimboManager;
+import com.hzcu.loginmod.message.LoginMessages;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+import com.hzcu.loginmod.network.UnauthenticatedPacketGate;
+import com.hzcu.loginmod.policy.AuthState;
+import com.hzcu.loginmod.policy.PlayerPermissions;
+import com.hzcu.loginmod.policy.RestrictedAction;
+import com.hzcu.loginmod.store.Stores;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.common.util.FakePlayer;
-import net.minecraftforge.event.entity.living.LivingEvent;
+import net.minecraftforge.event.CommandEvent;
+import net.minecraftforge.event.ServerChatEvent;
+import net.minecraftforge.event.entity.item.ItemTossEvent;
+import net.minecraftforge.event.entity.player.AttackEntityEvent;
+import net.minecraftforge.event.entity.player.PlayerContainerEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import net.minecraftforge.event.level.BlockEvent;
@@ -14,48 +33,33 @@ import java.util.UUID;
 
 /**
  * 处理未登录玩家的行为限制
+ * 每类操作对应一个 RestrictedAction，是否禁止由配置编译出的 RestrictionPolicy 决定
  */
 public class PlayerRestrictionHandler {
     
     /**
-     * 检查是否是假人玩家
-     * 假人玩家用于自动化模组，应该被允许操作
+     * 按当前策略判断玩家能否进行某个操作，被禁止时发送提示
+     * 假人玩家用于自动化模组，始终允许操作
+     *
+     * @return 操作被禁止时返回 true
      */
-    private boolean isFakePlayer(ServerPlayer player) {
-        return player instanceof FakePlayer;
-    }
-
-    /**
-     * 限制玩家移动
-     */
-    @SubscribeEvent
-    public void onPlayerMove(LivingEvent.LivingTickEvent event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            String playerName = player.getName().getString();
-            
-            // 如果玩家在白名单中，自动标记为已登录
-            if (LoginMod.isPlayerWhitelisted(playerName) && !LoginMod.isPlayerLoggedIn(playerUUID)) {
-                LoginMod.markPlayerLoggedIn(playerUUID);
-                player.sendSystemMessage(Component.literal("§a您在白名单中，已自动登录！"));
-                return;
+    private boolean deny(Entity entity, RestrictedAction action) {
+        if (!(entity instanceof ServerPlayer player) || player instanceof FakePlayer) {
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            AuthState state = LoginMod.getAuthState(player.getUUID());
+            if (!WhitelistConfig.getRestrictionPolicy().isRestricted(state, action)) {
+                return false;
             }
             
-            // 如果玩家未登录，阻止移动
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                // 将玩家固定在当前位置
-                player.setDeltaMovement(0, player.getDeltaMovement().y, 0);
-                
-                // 每隔一段时间提醒玩家登录（避免刷屏）
-                if (player.tickCount % 100 == 0) {
-                    player.sendSystemMessage(Component.literal("§c请先使用 /login <用户名> <密码> 登录！"));
-                }
-            }
+            LoginMetrics.recordDenied(action);
+            LoginMessages.remind(player, action.message());
+            return true;
+        } finally {
+            LoginMetrics.recordHandlerNanos(System.nanoTime() - start);
         }
     }
 
@@ -64,19 +68,8 @@ public class PlayerRestrictionHandler {
      */
     @SubscribeEvent
     public void onBlockBreak(BlockEvent.BreakEvent event) {
-        if (event.getPlayer() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            
-            // 如果玩家未登录，取消破坏方块
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                event.setCanceled(true);
-                player.sendSystemMessage(Component.literal("§c请先登录才能破坏方块！使用 /login <用户名> <密码>"));
-            }
+        if (deny(event.getPlayer(), RestrictedAction.BREAK_BLOCK)) {
+            event.setCanceled(true);
         }
     }
 
@@ -85,19 +78,8 @@ public class PlayerRestrictionHandler {
      */
     @SubscribeEvent
     public void onBlockPlace(BlockEvent.EntityPlaceEvent event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            
-            // 如果玩家未登录，取消放置方块
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                event.setCanceled(true);
-                player.sendSystemMessage(Component.literal("§c请先登录才能放置方块！使用 /login <用户名> <密码>"));
-            }
+        if (deny(event.getEntity(), RestrictedAction.PLACE_BLOCK)) {
+            event.setCanceled(true);
         }
     }
 
@@ -106,19 +88,8 @@ public class PlayerRestrictionHandler {
      */
     @SubscribeEvent
     public void onPlayerInteractBlock(PlayerInteractEvent.RightClickBlock event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            
-            // 如果玩家未登录，取消交互
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                event.setCanceled(true);
-                player.sendSystemMessage(Component.literal("§c请先登录才能与方块交互！使用 /login <用户名> <密码>"));
-            }
+        if (deny(event.getEntity(), RestrictedAction.INTERACT_BLOCK)) {
+            event.setCanceled(true);
         }
     }
 
@@ -127,19 +98,28 @@ public class PlayerRestrictionHandler {
      */
     @SubscribeEvent
     public void onPlayerInteractItem(PlayerInteractEvent.RightClickItem event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            
-            // 如果玩家未登录，取消使用物品
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                event.setCanceled(true);
-                player.sendSystemMessage(Component.literal("§c请先登录才能使用物品！使用 /login <用户名> <密码>"));
-            }
+        if (deny(event.getEntity(), RestrictedAction.USE_ITEM)) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * 限制玩家与实体交互（如交易、骑乘等）
+     */
+    @SubscribeEvent
+    public void onPlayerInteractEntity(PlayerInteractEvent.EntityInteract event) {
+        if (deny(event.getEntity(), RestrictedAction.INTERACT_ENTITY)) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * 限制玩家与实体的特定部位交互（如盔甲架）
+     */
+    @SubscribeEvent
+    public void onPlayerInteractEntitySpecific(PlayerInteractEvent.EntityInteractSpecific event) {
+        if (deny(event.getEntity(), RestrictedAction.INTERACT_ENTITY)) {
+            event.setCanceled(true);
         }
     }
 
@@ -147,19 +127,66 @@ public class PlayerRestrictionHandler {
      * 限制玩家攻击实体
      */
     @SubscribeEvent
-    public void onPlayerAttack(PlayerInteractEvent.LeftClickEmpty event) {
-        if (event.getEntity() instanceof ServerPlayer player) {
-            // 允许假人玩家
-            if (isFakePlayer(player)) {
-                return;
-            }
-            
-            UUID playerUUID = player.getUUID();
-            
-            // 如果玩家未登录，提醒玩家
-            if (!LoginMod.isPlayerLoggedIn(playerUUID)) {
-                player.sendSystemMessage(Component.literal("§c请先登录才能进行操作！使用 /login <用户名> <密码>"));
-            }
+    public void onPlayerAttack(AttackEntityEvent event) {
+        if (deny(event.getEntity(), RestrictedAction.ATTACK)) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * 限制玩家丢弃物品
+     * 事件触发时物品已离开背包，取消事件会让物品消失，因此先尽量放回背包，放不下的部分照常掉落
+     */
+    @SubscribeEvent
+    public void onItemToss(ItemTossEvent event) {
+        Player player = event.getPlayer();
+        if (!deny(player, RestrictedAction.DROP_ITEM)) {
+            return;
+        }
+        
+        ItemStack stack = event.getEntity().getItem();
+        player.getInventory().add(stack);
+        if (stack.isEmpty()) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * 限制玩家打开容器（该事件不可取消，直接关闭已打开的界面）
+     */
+    @SubscribeEvent
+    public void onContainerOpen(PlayerContainerEvent.Open event) {
+        if (event.getEntity() instanceof ServerPlayer player && deny(player, RestrictedAction.OPEN_CONTAINER)) {
+            player.closeContainer();
+        }
+    }
+
+    /**
+     * 限制玩家聊天
+     */
+    @SubscribeEvent
+    public void onChat(ServerChatEvent event) {
+        if (deny(event.getPlayer(), RestrictedAction.CHAT)) {
+            event.setCanceled(true);
+        }
+    }
+
+    /**
+     * 限制玩家使用命令，配置中允许的命令（至少包括 /login）除外
+     */
+    @SubscribeEvent
+    public void onCommand(CommandEvent event) {
+        ServerPlayer player = event.getParseResults().getContext().getSource().getPlayer();
+        if (player == null) {
+            return;
+        }
+        
+        String input = event.getParseResults().getReader().getString();
+        if (WhitelistConfig.getRestrictionPolicy().isCommandAllowed(input)) {
+            return;
+        }
+        if (deny(player, RestrictedAction.COMMAND)) {
+            event.setCanceled(true);
         }
     }
 
@@ -170,10 +197,42 @@ public class PlayerRestrictionHandler {
     public void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
         if (event.getEntity() instanceof ServerPlayer player) {
             UUID playerUUID = player.getUUID();
+            
+            // 刷新已登录玩家的会话，有效期从离开时算起，以便短时间内重连时自动登录
+            String account = LoginMod.getPlayerAccount(playerUUID);
+            LoginMod.rememberSession(player);
+            
+            if (LoginMod.isPlayerLoggedIn(playerUUID)) {
+                AuditLog.record(AuditType.LOGOUT, playerUUID, player.getName().getString(), account,
+                    player.getIpAddress(), null);
+            }
+            
+            LoginCommand.cancelQueuedLogin(playerUUID);
             LoginMod.removePlayerLoginStatus(playerUUID);
+            LoginMessages.forget(playerUUID);
+            LimboManager.forget(playerUUID);
+            PlayerPermissions.forget(playerUUID);
         }
     }
 
+    /**
+     * 有效期内从同一 IP 重连时恢复上次的登录会话
+     */
+    private boolean tryResumeSession(ServerPlayer player) {
+        if (!Stores.isResumeEnabled()) {
+            return false;
+        }
+        
+        String account = Stores.sessions().tryResume(player.getUUID(), player.getIpAddress());
+        if (account == null) {
+            return false;
+        }
+        
+        LoginMod.markPlayerLoggedIn(player.getUUID(), account);
+        player.sendSystemMessage(Component.literal("§a已恢复上次的登录会话，欢迎回来，" + account + "！"));
+        return true;
+    }
+
     /**
      * 玩家加入服务器时提醒登录
      */
@@ -182,15 +241,28 @@ public class PlayerRestrictionHandler {
         if (event.getEntity() instanceof ServerPlayer player) {
             String playerName = player.getName().getString();
             
+            // 名单中尚未解析的同名条目绑定到该玩家；加入时发送的命令树是在绑定之前按权限检查的，
+            // 权限因此变化时重新发送
+            WhitelistConfig.resolve(player.getUUID(), playerName);
+            PlayerPermissions.refresh(player);
+            
             // 检查是否在白名单中
-            if (LoginMod.isPlayerWhitelisted(playerName)) {
+            if (LoginMod.isPlayerWhitelisted(player.getUUID())) {
                 LoginMod.markPlayerLoggedIn(player.getUUID());
                 player.sendSystemMessage(Component.literal("§e============HZCU-CA—Minecraft==========="));
                 player.sendSystemMessage(Component.literal("§a欢迎来到服务器！"));
                 player.sendSystemMessage(Component.literal("§a您在白名单中，已自动登录！"));
                 player.sendSystemMessage(Component.literal("§e========================================"));
-                LoginMod.LOGGER.info("Player {} (whitelisted) auto-logged in", playerName);
+                AuditLog.record(AuditType.AUTO_LOGIN, player.getUUID(), playerName, null, player.getIpAddress(), null);
+            } else if (tryResumeSession(player)) {
+                AuditLog.record(AuditType.RESUME, player.getUUID(), playerName, LoginMod.getPlayerAccount(player.getUUID()),
+                    player.getIpAddress(), null);
             } else {
+                LoginMod.markPlayerPending(player.getUUID());
+                if (WhitelistConfig.getSettings().isLimboEnabled()) {
+                    LimboManager.enter(player);
+                }
+                UnauthenticatedPacketGate.install(player);
                 player.sendSystemMessage(Component.literal("§e============HZCU-CA—Minecraft==========="));
                 player.sendSystemMessage(Component.literal("§e欢迎来到服务器！"));
                 player.sendSystemMessage(Component.literal("§e请使用 §6/login <用户名> <密码> §e进行登录"));
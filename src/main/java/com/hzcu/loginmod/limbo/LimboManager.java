@@ -0,0 +1,127 @@
+package com.hzcu.loginmod.limbo;
+
+import com.hzcu.loginmod.LoginMod;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 未登录玩家的等待维度
+ *
+ * 玩家加入后被传送到模组数据包提供的 loginmod:limbo 维度（只有一层屏障方块的空世界，没有生物），
+ * 不再加载和 tick 主世界的区块，也不会被其他玩家追踪或被怪物锁定；登录后回到原来的位置。
+ * 原位置保存在玩家的持久化数据中，未登录就下线或服务器崩溃后，下次登录仍能回到原处。
+ * 所有方法必须在服务器主线程调用。
+ */
+public final class LimboManager {
+    public static final ResourceKey<Level> LIMBO = ResourceKey.create(Registries.DIMENSION,
+        new ResourceLocation(LoginMod.MODID, "limbo"));
+
+    private static final String RETURN_TAG = "loginmod:limbo_return";
+    // 相邻玩家之间的距离，超过最大视距（32 区块），互相不可见
+    private static final int SLOT_SPACING = 1024;
+
+    // 每个玩家在 limbo 中占用的位置编号
+    private static final Map<UUID, Integer> slots = new HashMap<>();
+    private static final BitSet usedSlots = new BitSet();
+    private static boolean missingWarned = false;
+
+    private LimboManager() {
+    }
+
+    /**
+     * 记住玩家当前的位置并把玩家送入 limbo 维度
+     * 已在 limbo 中（上次未登录就下线）时保留之前记录的位置
+     */
+    public static void enter(ServerPlayer player) {
+        ServerLevel limbo = player.server.getLevel(LIMBO);
+        if (limbo == null) {
+            if (!missingWarned) {
+                missingWarned = true;
+                LoginMod.LOGGER.warn("找不到 {} 维度，未登录玩家将留在原来的世界中", LIMBO.location());
+            }
+            return;
+        }
+
+        CompoundTag data = player.getPersistentData();
+        if (!data.contains(RETURN_TAG, Tag.TAG_COMPOUND) && player.level() != limbo) {
+            CompoundTag position = new CompoundTag();
+            position.putString("dimension", player.level().dimension().location().toString());
+            position.putDouble("x", player.getX());
+            position.putDouble("y", player.getY());
+            position.putDouble("z", player.getZ());
+            position.putFloat("yaw", player.getYRot());
+            position.putFloat("pitch", player.getXRot());
+            data.put(RETURN_TAG, position);
+        }
+
+        int slot = slots.computeIfAbsent(player.getUUID(), uuid -> {
+            int free = usedSlots.nextClearBit(0);
+            usedSlots.set(free);
+            return free;
+        });
+        player.teleportTo(limbo, slot * SLOT_SPACING + 0.5, 1, 0.5, player.getYRot(), player.getXRot());
+    }
+
+    /**
+     * 把玩家送回进入 limbo 前的位置（玩家登录后调用）
+     * 原维度已不存在或没有记录时送到主世界出生点
+     */
+    public static void release(ServerPlayer player) {
+        forget(player.getUUID());
+
+        CompoundTag data = player.getPersistentData();
+        if (!data.contains(RETURN_TAG, Tag.TAG_COMPOUND)) {
+            if (player.level().dimension() == LIMBO) {
+                sendToSpawn(player);
+            }
+            return;
+        }
+
+        CompoundTag position = data.getCompound(RETURN_TAG);
+        data.remove(RETURN_TAG);
+        ResourceLocation dimension = ResourceLocation.tryParse(position.getString("dimension"));
+        ServerLevel level = dimension != null
+            ? player.server.getLevel(ResourceKey.create(Registries.DIMENSION, dimension))
+            : null;
+        if (level == null) {
+            sendToSpawn(player);
+            return;
+        }
+
+        player.resetFallDistance();
+        player.teleportTo(level, position.getDouble("x"), position.getDouble("y"), position.getDouble("z"),
+            position.getFloat("yaw"), position.getFloat("pitch"));
+    }
+
+    /**
+     * 释放玩家占用的位置编号（玩家离开服务器时调用）
+     * 持久化数据中的原位置保留到下次登录
+     */
+    public static void forget(UUID playerUUID) {
+        Integer slot = slots.remove(playerUUID);
+        if (slot != null) {
+            usedSlots.clear(slot);
+        }
+    }
+
+    private static void sendToSpawn(ServerPlayer player) {
+        MinecraftServer server = player.server;
+        ServerLevel overworld = server.overworld();
+        BlockPos spawn = overworld.getSharedSpawnPos();
+        player.resetFallDistance();
+        player.teleportTo(overworld, spawn.getX() + 0.5, spawn.getY(), spawn.getZ() + 0.5, 0, 0);
+    }
+}
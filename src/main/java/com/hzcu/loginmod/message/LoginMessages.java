@@ -0,0 +1,65 @@
+package com.hzcu.loginmod.message;
+
+import com.hzcu.loginmod.config.WhitelistConfig;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.UUID;
+
+/**
+ * 登录提示消息目录
+ *
+ * 所有限制提示都是预先构建的组件，发送时不再拼接字符串。
+ * 组件可翻译：安装了本模组语言文件的客户端显示对应语言，其他客户端显示内置的中文文本。
+ * 同一玩家在冷却时间内的重复提示会被合并，按住鼠标时不会每 tick 发一个聊天包。
+ */
+public final class LoginMessages {
+    public static final Component LOGIN_REMINDER = message("reminder", "§c请先使用 /login <用户名> <密码> 登录！");
+    public static final Component DENY_BREAK_BLOCK = message("deny.break_block", "§c请先登录才能破坏方块！使用 /login <用户名> <密码>");
+    public static final Component DENY_PLACE_BLOCK = message("deny.place_block", "§c请先登录才能放置方块！使用 /login <用户名> <密码>");
+    public static final Component DENY_INTERACT_BLOCK = message("deny.interact_block", "§c请先登录才能与方块交互！使用 /login <用户名> <密码>");
+    public static final Component DENY_USE_ITEM = message("deny.use_item", "§c请先登录才能使用物品！使用 /login <用户名> <密码>");
+    public static final Component DENY_ATTACK = message("deny.attack", "§c请先登录才能攻击！使用 /login <用户名> <密码>");
+    public static final Component DENY_INTERACT_ENTITY = message("deny.interact_entity", "§c请先登录才能与实体交互！使用 /login <用户名> <密码>");
+    public static final Component DENY_DROP_ITEM = message("deny.drop_item", "§c请先登录才能丢弃物品！使用 /login <用户名> <密码>");
+    public static final Component DENY_OPEN_CONTAINER = message("deny.open_container", "§c请先登录才能打开容器！使用 /login <用户名> <密码>");
+    public static final Component DENY_CHAT = message("deny.chat", "§c请先登录才能聊天！使用 /login <用户名> <密码>");
+    public static final Component DENY_COMMAND = message("deny.command", "§c请先登录才能使用该命令！使用 /login <用户名> <密码>");
+    public static final Component KICK_LOGIN_TIMEOUT = message("kick.login_timeout", "§c登录超时，请重新连接后使用 /login 登录。");
+
+    // 每个玩家上次收到提示的服务器 tick（只在主线程访问）
+    private static final Object2LongOpenHashMap<UUID> lastReminderTick = new Object2LongOpenHashMap<>();
+
+    static {
+        lastReminderTick.defaultReturnValue(Long.MIN_VALUE);
+    }
+
+    private LoginMessages() {
+    }
+
+    private static Component message(String key, String fallback) {
+        return Component.translatableWithFallback("loginmod.message." + key, fallback);
+    }
+
+    /**
+     * 在冷却时间允许时向玩家发送提示，冷却期内的提示直接丢弃
+     */
+    public static void remind(ServerPlayer player, Component message) {
+        long now = player.server.getTickCount();
+        UUID playerUUID = player.getUUID();
+        long last = lastReminderTick.getLong(playerUUID);
+        if (last != Long.MIN_VALUE && now - last < WhitelistConfig.getSettings().getReminderCooldownTicks()) {
+            return;
+        }
+        lastReminderTick.put(playerUUID, now);
+        player.sendSystemMessage(message);
+    }
+
+    /**
+     * 玩家离开服务器时清除冷却记录
+     */
+    public static void forget(UUID playerUUID) {
+        lastReminderTick.removeLong(playerUUID);
+    }
+}
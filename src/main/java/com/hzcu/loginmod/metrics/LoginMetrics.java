@@ -0,0 +1,183 @@
+package com.hzcu.loginmod.metrics;
+
+import com.hzcu.loginmod.auth.AuthResult;
+import com.hzcu.loginmod.policy.RestrictedAction;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录和操作限制的运行指标
+ *
+ * 计数器使用 LongAdder，耗时使用 LatencyHistogram，记录路径无锁且不分配对象。
+ * 通过 JMX（LoginStats）、/loginstats 命令和可选的 Prometheus 文本文件导出。
+ */
+public final class LoginMetrics {
+    // 凭据验证耗时（工作线程上 AuthBackend.authenticate 的执行时间）
+    public static final LatencyHistogram VERIFY_LATENCY = new LatencyHistogram();
+    // 每个 tick 内 PlayerRestrictionHandler 的总耗时（只记录有事件被处理的 tick）
+    public static final LatencyHistogram RESTRICTION_TICK_TIME = new LatencyHistogram();
+    // 验证任务在准入队列中的等待时间（无需排队的记为 0）
+    public static final LatencyHistogram QUEUE_WAIT = new LatencyHistogram();
+
+    public static final String REASON_ERROR = "error";
+    public static final String REASON_RATE_LIMITED = "rate_limited";
+    public static final String REASON_QUEUE_FULL = "queue_full";
+
+    private static final LongAdder attempts = new LongAdder();
+    private static final LongAdder successes = new LongAdder();
+    private static final LongAdder[] failures = adders(AuthResult.values().length);
+    private static final LongAdder errors = new LongAdder();
+    private static final LongAdder rateLimited = new LongAdder();
+    private static final LongAdder[] denied = adders(RestrictedAction.values().length);
+    private static final LongAdder droppedPackets = new LongAdder();
+    private static final LongAdder queueRejected = new LongAdder();
+    private static final LongAdder auditDropped = new LongAdder();
+    private static final LongAccumulator queuePeakDepth = new LongAccumulator(Long::max, 0);
+    private static volatile int queueDepth;
+
+    // 当前 tick 内限制处理器的累计耗时（只在主线程访问）
+    private static long tickNanos;
+
+    private LoginMetrics() {
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * 记录一次 /login 提交（包括被限流的）
+     */
+    public static void recordAttempt() {
+        attempts.increment();
+    }
+
+    public static void recordRateLimited() {
+        rateLimited.increment();
+    }
+
+    /**
+     * 记录一次验证的结果和耗时
+     */
+    public static void recordResult(AuthResult result, long nanos) {
+        VERIFY_LATENCY.record(nanos);
+        if (result == AuthResult.SUCCESS) {
+            successes.increment();
+        } else {
+            failures[result.ordinal()].increment();
+        }
+    }
+
+    /**
+     * 记录一次验证异常（包括线程池已满被拒绝）
+     */
+    public static void recordError() {
+        errors.increment();
+    }
+
+    public static void recordDenied(RestrictedAction action) {
+        denied[action.ordinal()].increment();
+    }
+
+    public static void recordDroppedPacket() {
+        droppedPackets.increment();
+    }
+
+    /**
+     * 记录一次因准入队列已满被拒绝的登录
+     */
+    public static void recordQueueRejected() {
+        queueRejected.increment();
+    }
+
+    /**
+     * 记录一个因审计缓冲区已满被丢弃的事件
+     */
+    public static void recordAuditDropped() {
+        auditDropped.increment();
+    }
+
+    /**
+     * 记录准入队列当前的排队人数
+     */
+    public static void recordQueueDepth(int depth) {
+        queueDepth = depth;
+        queuePeakDepth.accumulate(depth);
+    }
+
+    /**
+     * 累加限制处理器在当前 tick 内的耗时（主线程调用）
+     */
+    public static void recordHandlerNanos(long nanos) {
+        tickNanos += nanos;
+    }
+
+    /**
+     * tick 结束时记录本 tick 的限制处理耗时（主线程调用）
+     */
+    public static void endTick() {
+        if (tickNanos > 0) {
+            RESTRICTION_TICK_TIME.record(tickNanos);
+            tickNanos = 0;
+        }
+    }
+
+    public static long getAttempts() {
+        return attempts.sum();
+    }
+
+    public static long getSuccesses() {
+        return successes.sum();
+    }
+
+    /**
+     * 按原因统计的失败次数
+     */
+    public static Map<String, Long> getFailures() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (AuthResult reason : AuthResult.values()) {
+            if (reason != AuthResult.SUCCESS) {
+                result.put(reason.name().toLowerCase(Locale.ROOT), failures[reason.ordinal()].sum());
+            }
+        }
+        result.put(REASON_ERROR, errors.sum());
+        result.put(REASON_RATE_LIMITED, rateLimited.sum());
+        result.put(REASON_QUEUE_FULL, queueRejected.sum());
+        return result;
+    }
+
+    /**
+     * 按操作统计的拦截次数
+     */
+    public static Map<String, Long> getDenied() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (RestrictedAction action : RestrictedAction.values()) {
+            result.put(action.configName(), denied[action.ordinal()].sum());
+        }
+        return result;
+    }
+
+    public static long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    public static long getAuditDropped() {
+        return auditDropped.sum();
+    }
+
+    public static int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public static long getQueuePeakDepth() {
+        return queuePeakDepth.get();
+    }
+}
@@ -0,0 +1,158 @@
+package com.hzcu.loginmod.metrics;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.policy.AuthState;
+import com.hzcu.loginmod.session.SessionRegistry;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LoginStatsMXBean 的实现，读取 LoginMetrics 和会话表
+ */
+public class LoginStats implements LoginStatsMXBean {
+    private static final String OBJECT_NAME = "com.hzcu.loginmod:type=LoginStats";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    /**
+     * 注册到平台 MBeanServer（服务器启动时调用），同一进程内重复启动时替换旧的实例
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new LoginStats(), name);
+        } catch (JMException e) {
+            LoginMod.LOGGER.warn("注册 JMX 统计失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从平台 MBeanServer 注销（服务器停止时调用）
+     */
+    public static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LoginMod.LOGGER.warn("注销 JMX 统计失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 各状态的在线会话数
+     */
+    public static Map<String, Integer> sessionCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (AuthState state : AuthState.values()) {
+            result.put(state.configName(), SessionRegistry.count(state));
+        }
+        return result;
+    }
+
+    @Override
+    public long getLoginAttempts() {
+        return LoginMetrics.getAttempts();
+    }
+
+    @Override
+    public long getLoginSuccesses() {
+        return LoginMetrics.getSuccesses();
+    }
+
+    @Override
+    public Map<String, Long> getLoginFailures() {
+        return LoginMetrics.getFailures();
+    }
+
+    @Override
+    public Map<String, Long> getDeniedActions() {
+        return LoginMetrics.getDenied();
+    }
+
+    @Override
+    public long getDroppedPackets() {
+        return LoginMetrics.getDroppedPackets();
+    }
+
+    @Override
+    public long getAuditDropped() {
+        return LoginMetrics.getAuditDropped();
+    }
+
+    @Override
+    public long getVerifyCount() {
+        return LoginMetrics.VERIFY_LATENCY.snapshot().count();
+    }
+
+    @Override
+    public double getVerifyLatencyP50Millis() {
+        return LoginMetrics.VERIFY_LATENCY.snapshot().percentile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getVerifyLatencyP99Millis() {
+        return LoginMetrics.VERIFY_LATENCY.snapshot().percentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getVerifyLatencyMaxMillis() {
+        return LoginMetrics.VERIFY_LATENCY.snapshot().max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getRestrictionTickP50Micros() {
+        return LoginMetrics.RESTRICTION_TICK_TIME.snapshot().percentile(0.5) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getRestrictionTickP99Micros() {
+        return LoginMetrics.RESTRICTION_TICK_TIME.snapshot().percentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getRestrictionTickMaxMicros() {
+        return LoginMetrics.RESTRICTION_TICK_TIME.snapshot().max() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return LoginMetrics.getQueueDepth();
+    }
+
+    @Override
+    public long getQueuePeakDepth() {
+        return LoginMetrics.getQueuePeakDepth();
+    }
+
+    @Override
+    public double getQueueWaitP50Millis() {
+        return LoginMetrics.QUEUE_WAIT.snapshot().percentile(0.5) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getQueueWaitP99Millis() {
+        return LoginMetrics.QUEUE_WAIT.snapshot().percentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getQueueWaitMaxMillis() {
+        return LoginMetrics.QUEUE_WAIT.snapshot().max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Map<String, Integer> getSessions() {
+        return sessionCounts();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hzcu.loginmod.metrics;
+
+import java.util.Map;
+
+/**
+ * 通过 JMX 导出的登录统计（ObjectName: com.hzcu.loginmod:type=LoginStats）
+ */
+public interface LoginStatsMXBean {
+    long getLoginAttempts();
+
+    long getLoginSuccesses();
+
+    Map<String, Long> getLoginFailures();
+
+    Map<String, Long> getDeniedActions();
+
+    long getDroppedPackets();
+
+    long getAuditDropped();
+
+    long getVerifyCount();
+
+    double getVerifyLatencyP50Millis();
+
+    double getVerifyLatencyP99Millis();
+
+    double getVerifyLatencyMaxMillis();
+
+    double getRestrictionTickP50Micros();
+
+    double getRestrictionTickP99Micros();
+
+    double getRestrictionTickMaxMicros();
+
+    int getQueueDepth();
+
+    long getQueuePeakDepth();
+
+    double getQueueWaitP50Millis();
+
+    double getQueueWaitP99Millis();
+
+    double getQueueWaitMaxMillis();
+
+    Map<String, Integer> getSessions();
+}
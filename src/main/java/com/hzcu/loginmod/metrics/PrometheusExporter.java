@@ -0,0 +1,121 @@
+package com.hzcu.loginmod.metrics;
+
+import com.hzcu.loginmod.LoginMod;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期把指标写成 Prometheus 文本格式，供 node exporter 的 textfile collector 读取
+ * 先写临时文件再原子替换，collector 不会读到写了一半的文件
+ */
+public final class PrometheusExporter {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static ScheduledExecutorService scheduler;
+
+    private PrometheusExporter() {
+    }
+
+    /**
+     * 开始定期写入指标文件
+     */
+    public static synchronized void start(Path file, int intervalSeconds) {
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LoginMod-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, intervalSeconds);
+        scheduler.scheduleWithFixedDelay(() -> write(file), interval, interval, TimeUnit.SECONDS);
+        LoginMod.LOGGER.info("Writing Prometheus metrics to {} every {}s", file, interval);
+    }
+
+    /**
+     * 停止写入（服务器停止时调用）
+     */
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static void write(Path file) {
+        Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempPath)) {
+            writeCounter(writer, "loginmod_login_attempts_total", "Submitted /login commands", LoginMetrics.getAttempts());
+            writeCounter(writer, "loginmod_login_successes_total", "Successful logins", LoginMetrics.getSuccesses());
+            writeLabelled(writer, "loginmod_login_failures_total", "Failed logins by reason", "counter", "reason",
+                LoginMetrics.getFailures());
+            writeLabelled(writer, "loginmod_restriction_denied_total", "Denied player actions by type", "counter",
+                "action", LoginMetrics.getDenied());
+            writeCounter(writer, "loginmod_dropped_packets_total", "Packets dropped for unauthenticated players",
+                LoginMetrics.getDroppedPackets());
+            writeCounter(writer, "loginmod_audit_dropped_total", "Audit events dropped because the buffer was full",
+                LoginMetrics.getAuditDropped());
+            writeLabelled(writer, "loginmod_sessions", "Online sessions by state", "gauge", "state",
+                LoginStats.sessionCounts());
+            writeSummary(writer, "loginmod_verify_latency_seconds", "Credential verification latency",
+                LoginMetrics.VERIFY_LATENCY.snapshot());
+            writeHeader(writer, "loginmod_admission_queue_depth", "Logins waiting in the admission queue", "gauge");
+            writer.write("loginmod_admission_queue_depth " + LoginMetrics.getQueueDepth() + "\n");
+            writeSummary(writer, "loginmod_admission_queue_wait_seconds", "Time spent waiting in the admission queue",
+                LoginMetrics.QUEUE_WAIT.snapshot());
+            writeSummary(writer, "loginmod_restriction_tick_seconds", "Time spent in restriction handlers per tick",
+                LoginMetrics.RESTRICTION_TICK_TIME.snapshot());
+        } catch (IOException e) {
+            LoginMod.LOGGER.warn("写入指标文件 {} 时出错: {}", file, e.getMessage());
+            return;
+        }
+
+        try {
+            try {
+                Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LoginMod.LOGGER.warn("写入指标文件 {} 时出错: {}", file, e.getMessage());
+        }
+    }
+
+    private static void writeHeader(Writer writer, String name, String help, String type) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeCounter(Writer writer, String name, String help, long value) throws IOException {
+        writeHeader(writer, name, help, "counter");
+        writer.write(name + " " + value + "\n");
+    }
+
+    private static void writeLabelled(Writer writer, String name, String help, String type, String label,
+                                      Map<String, ? extends Number> values) throws IOException {
+        writeHeader(writer, name, help, type);
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            writer.write(name + "{" + label + "=\"" + entry.getKey() + "\"} " + entry.getValue() + "\n");
+        }
+    }
+
+    private static void writeSummary(Writer writer, String name, String help, LatencyHistogram.Snapshot snapshot)
+            throws IOException {
+        writeHeader(writer, name, help, "summary");
+        for (double quantile : QUANTILES) {
+            writer.write(name + "{quantile=\"" + quantile + "\"} "
+                + snapshot.percentile(quantile) / NANOS_PER_SECOND + "\n");
+        }
+        writer.write(name + "_sum " + snapshot.sum() / NANOS_PER_SECOND + "\n");
+        writer.write(name + "_count " + snapshot.count() + "\n");
+    }
+}
@@ -0,0 +1,193 @@
+package com.hzcu.loginmod.network;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.WhitelistConfig;
+import com.hzcu.loginmod.metrics.LoginMetrics;
+import com.hzcu.loginmod.policy.RestrictedAction;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import net.minecraft.network.protocol.game.ServerboundAcceptTeleportationPacket;
+import net.minecraft.network.protocol.game.ServerboundChatAckPacket;
+import net.minecraft.network.protocol.game.ServerboundChatCommandPacket;
+import net.minecraft.network.protocol.game.ServerboundChatPacket;
+import net.minecraft.network.protocol.game.ServerboundChatSessionUpdatePacket;
+import net.minecraft.network.protocol.game.ServerboundClientCommandPacket;
+import net.minecraft.network.protocol.game.ServerboundClientInformationPacket;
+import net.minecraft.network.protocol.game.ServerboundCommandSuggestionPacket;
+import net.minecraft.network.protocol.game.ServerboundContainerButtonClickPacket;
+import net.minecraft.network.protocol.game.ServerboundContainerClickPacket;
+import net.minecraft.network.protocol.game.ServerboundContainerClosePacket;
+import net.minecraft.network.protocol.game.ServerboundCustomPayloadPacket;
+import net.minecraft.network.protocol.game.ServerboundInteractPacket;
+import net.minecraft.network.protocol.game.ServerboundKeepAlivePacket;
+import net.minecraft.network.protocol.game.ServerboundMovePlayerPacket;
+import net.minecraft.network.protocol.game.ServerboundMoveVehiclePacket;
+import net.minecraft.network.protocol.game.ServerboundPaddleBoatPacket;
+import net.minecraft.network.protocol.game.ServerboundPlaceRecipePacket;
+import net.minecraft.network.protocol.game.ServerboundPlayerActionPacket;
+import net.minecraft.network.protocol.game.ServerboundPlayerInputPacket;
+import net.minecraft.network.protocol.game.ServerboundPongPacket;
+import net.minecraft.network.protocol.game.ServerboundResourcePackPacket;
+import net.minecraft.network.protocol.game.ServerboundSetCarriedItemPacket;
+import net.minecraft.network.protocol.game.ServerboundSwingPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemOnPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemPacket;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 未登录连接的入站数据包过滤器
+ *
+ * 玩家加入时插入到连接的 Netty 管道中（位于解码器之后、packet_handler 之前），
+ * 在网络线程上直接丢弃被限制策略禁止的游戏数据包，这些包不会再进入主线程和 Forge 事件总线。
+ * 每种数据包对应一个或多个 RestrictedAction，只有玩家当前状态下全部对应操作都被禁止时才丢弃，其余交给事件处理器细分；
+ * 无法归类的数据包一律丢弃。聊天和命令包始终放行，由事件处理器按策略判断（/login 需要通过）。
+ * 带坐标的移动包被丢弃时定期把玩家传送回原位；玩家登录后过滤器被移除。
+ */
+public class UnauthenticatedPacketGate extends ChannelInboundHandlerAdapter {
+    public static final String HANDLER_NAME = "loginmod_auth_gate";
+    private static final String PACKET_HANDLER = "packet_handler";
+    private static final long RESYNC_INTERVAL_NANOS = 1_000_000_000L;
+
+    // 未登录时仍需放行的数据包：聊天与命令（用于 /login）、连接维持和客户端设置
+    private static final Set<Class<?>> ALLOWED_PACKETS = Set.of(
+        ServerboundChatPacket.class,
+        ServerboundChatCommandPacket.class,
+        ServerboundChatAckPacket.class,
+        ServerboundChatSessionUpdatePacket.class,
+        ServerboundCommandSuggestionPacket.class,
+        ServerboundKeepAlivePacket.class,
+        ServerboundPongPacket.class,
+        ServerboundAcceptTeleportationPacket.class,
+        ServerboundClientInformationPacket.class,
+        ServerboundClientCommandPacket.class,
+        ServerboundCustomPayloadPacket.class,
+        ServerboundResourcePackPacket.class,
+        ServerboundContainerClosePacket.class
+    );
+
+    // 数据包可能触发的操作（位掩码）
+    private static final Map<Class<?>, Integer> PACKET_ACTIONS = Map.ofEntries(
+        Map.entry(ServerboundMoveVehiclePacket.class, RestrictedAction.MOVE.bit()),
+        Map.entry(ServerboundPaddleBoatPacket.class, RestrictedAction.MOVE.bit()),
+        Map.entry(ServerboundPlayerInputPacket.class, RestrictedAction.MOVE.bit()),
+        Map.entry(ServerboundUseItemOnPacket.class, RestrictedAction.INTERACT_BLOCK.bit() | RestrictedAction.PLACE_BLOCK.bit()),
+        Map.entry(ServerboundUseItemPacket.class, RestrictedAction.USE_ITEM.bit()),
+        Map.entry(ServerboundSetCarriedItemPacket.class, RestrictedAction.USE_ITEM.bit()),
+        Map.entry(ServerboundInteractPacket.class, RestrictedAction.ATTACK.bit() | RestrictedAction.INTERACT_ENTITY.bit()),
+        Map.entry(ServerboundSwingPacket.class, RestrictedAction.ATTACK.bit() | RestrictedAction.BREAK_BLOCK.bit()),
+        Map.entry(ServerboundContainerClickPacket.class, RestrictedAction.OPEN_CONTAINER.bit()),
+        Map.entry(ServerboundContainerButtonClickPacket.class, RestrictedAction.OPEN_CONTAINER.bit()),
+        Map.entry(ServerboundPlaceRecipePacket.class, RestrictedAction.OPEN_CONTAINER.bit())
+    );
+
+    private static final Map<UUID, Channel> gatedChannels = new ConcurrentHashMap<>();
+
+    private final ServerPlayer player;
+    private long lastResync;
+    private volatile boolean resyncPending;
+
+    private UnauthenticatedPacketGate(ServerPlayer player) {
+        this.player = player;
+        this.lastResync = System.nanoTime();
+    }
+
+    /**
+     * 为未登录玩家的连接安装过滤器
+     */
+    public static void install(ServerPlayer player) {
+        Channel channel = player.connection.connection.channel();
+        if (channel == null) {
+            return;
+        }
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(PACKET_HANDLER) == null || pipeline.get(HANDLER_NAME) != null) {
+            return;
+        }
+        pipeline.addBefore(PACKET_HANDLER, HANDLER_NAME, new UnauthenticatedPacketGate(player));
+        gatedChannels.put(player.getUUID(), channel);
+    }
+
+    /**
+     * 移除玩家连接上的过滤器（登录成功或离开服务器时调用）
+     */
+    public static void remove(UUID playerUUID) {
+        Channel channel = gatedChannels.remove(playerUUID);
+        if (channel == null) {
+            return;
+        }
+        // 在连接自己的事件循环中修改管道，避免与正在处理的数据包交错
+        channel.eventLoop().execute(() -> {
+            if (channel.pipeline().get(HANDLER_NAME) != null) {
+                channel.pipeline().remove(HANDLER_NAME);
+            }
+        });
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (ALLOWED_PACKETS.contains(msg.getClass())) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        // 会话表是线程安全的，可以直接在网络线程上读取玩家状态
+        int restricted = WhitelistConfig.getRestrictionPolicy().maskFor(LoginMod.getAuthState(player.getUUID()));
+        if (msg instanceof ServerboundMovePlayerPacket move) {
+            // 只有朝向或落地状态的移动包无害，放行
+            if (!move.hasPosition() || (restricted & RestrictedAction.MOVE.bit()) == 0) {
+                super.channelRead(ctx, msg);
+            } else {
+                LoginMetrics.recordDroppedPacket();
+                scheduleResync();
+            }
+            return;
+        }
+
+        int actions = actionsOf(msg);
+        if ((actions & ~restricted) != 0) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        // 其余数据包直接丢弃
+        LoginMetrics.recordDroppedPacket();
+    }
+
+    /**
+     * 数据包可能触发的操作，无法归类时返回 0
+     */
+    private static int actionsOf(Object msg) {
+        if (msg instanceof ServerboundPlayerActionPacket action) {
+            return switch (action.getAction()) {
+                case START_DESTROY_BLOCK, ABORT_DESTROY_BLOCK, STOP_DESTROY_BLOCK -> RestrictedAction.BREAK_BLOCK.bit();
+                case DROP_ITEM, DROP_ALL_ITEMS -> RestrictedAction.DROP_ITEM.bit();
+                default -> RestrictedAction.USE_ITEM.bit();
+            };
+        }
+        return PACKET_ACTIONS.getOrDefault(msg.getClass(), 0);
+    }
+
+    /**
+     * 客户端仍在本地移动，定期把它拉回服务器端的位置
+     */
+    private void scheduleResync() {
+        long now = System.nanoTime();
+        if (resyncPending || now - lastResync < RESYNC_INTERVAL_NANOS) {
+            return;
+        }
+        lastResync = now;
+        resyncPending = true;
+        player.server.execute(() -> {
+            if (LoginMod.isPlayerPending(player.getUUID())) {
+                player.connection.teleport(player.getX(), player.getY(), player.getZ(), player.getYRot(), player.getXRot());
+            }
+            resyncPending = false;
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.hzcu.loginmod.policy;
+
+import java.util.Locale;
+
+/**
+ * 玩家的登录状态
+ * 名称的小写形式用作 hzculogin.json 中 restrictions 的键
+ */
+public enum AuthState {
+    // 在线但尚未登录
+    PENDING,
+    // 已提交 /login，正在验证凭据
+    AUTHENTICATING,
+    // 已登录（包括白名单自动登录和会话恢复）
+    AUTHENTICATED,
+    // 登录尝试过于频繁，暂时不能再提交 /login
+    LOCKED;
+
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hzcu.loginmod.policy;
+
+import java.util.Locale;
+
+/**
+ * 模组命令使用的权限
+ * 每个权限占掩码中的一位，名称的小写形式用于 hzculogin.json 中 roles 的配置
+ */
+public enum Permission {
+    // /loginwhitelist list
+    WHITELIST_VIEW,
+    // /loginwhitelist add、remove
+    WHITELIST_MANAGE,
+    // /loginwhitelist reload
+    CONFIG_RELOAD,
+    // /adduser
+    USER_ADD,
+    // /loginadmin import
+    USER_IMPORT,
+    // /loginstats
+    STATS_VIEW,
+    // /loginaudit
+    AUDIT_VIEW;
+
+    // 所有权限对应的掩码
+    public static final int ALL = (1 << values().length) - 1;
+
+    private final int bit;
+
+    Permission() {
+        this.bit = 1 << ordinal();
+    }
+
+    public int bit() {
+        return bit;
+    }
+
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,112 @@
+package com.hzcu.loginmod.policy;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 编译后的角色权限
+ *
+ * 加载配置时把 roles 中每个角色的权限列表编译成一个 int 掩码，玩家的权限是其所有角色掩码的并集。
+ * 对象不可变，随配置快照一起替换。
+ */
+public final class PermissionPolicy {
+    public static final String ADMIN = "admin";
+    public static final String OPERATOR = "operator";
+    public static final String AUDITOR = "auditor";
+    // 不属于任何角色的玩家
+    public static final String GUEST = "guest";
+    private static final String WILDCARD = "*";
+
+    private final Map<String, Integer> roleMasks;
+
+    private PermissionPolicy(Map<String, Integer> roleMasks) {
+        this.roleMasks = Map.copyOf(roleMasks);
+    }
+
+    /**
+     * 未配置的角色使用的默认权限
+     */
+    private static Map<String, Integer> defaultMasks() {
+        Map<String, Integer> masks = new HashMap<>();
+        masks.put(ADMIN, Permission.ALL);
+        masks.put(OPERATOR, Permission.WHITELIST_VIEW.bit() | Permission.WHITELIST_MANAGE.bit()
+            | Permission.USER_ADD.bit() | Permission.USER_IMPORT.bit() | Permission.STATS_VIEW.bit());
+        masks.put(AUDITOR, Permission.WHITELIST_VIEW.bit() | Permission.STATS_VIEW.bit() | Permission.AUDIT_VIEW.bit());
+        masks.put(GUEST, 0);
+        return masks;
+    }
+
+    /**
+     * 根据设置编译角色权限，无法识别的权限名会被忽略并记录警告
+     */
+    public static PermissionPolicy compile(LoginSettings settings) {
+        Map<String, Integer> masks = defaultMasks();
+        Map<String, List<String>> roles = settings.getRoles();
+        if (roles != null) {
+            for (Map.Entry<String, List<String>> entry : roles.entrySet()) {
+                if (entry.getKey() == null || entry.getKey().isBlank()) {
+                    continue;
+                }
+                masks.put(normalizeRole(entry.getKey()), compileMask(entry.getKey(), entry.getValue()));
+            }
+        }
+        return new PermissionPolicy(masks);
+    }
+
+    private static int compileMask(String role, List<String> permissions) {
+        int mask = 0;
+        if (permissions == null) {
+            return mask;
+        }
+        for (String name : permissions) {
+            if (name == null) {
+                continue;
+            }
+            String normalized = name.trim().toLowerCase(Locale.ROOT);
+            if (WILDCARD.equals(normalized)) {
+                mask |= Permission.ALL;
+                continue;
+            }
+            Permission permission = parsePermission(normalized);
+            if (permission == null) {
+                LoginMod.LOGGER.warn("roles 中角色 {} 的未知权限: {}", role, name);
+                continue;
+            }
+            mask |= permission.bit();
+        }
+        return mask;
+    }
+
+    private static Permission parsePermission(String name) {
+        for (Permission permission : Permission.values()) {
+            if (permission.configName().equals(name)) {
+                return permission;
+            }
+        }
+        return null;
+    }
+
+    public static String normalizeRole(String role) {
+        return role.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 检查角色是否已定义（默认角色或 roles 中配置的角色）
+     */
+    public boolean isDefined(String role) {
+        return roleMasks.containsKey(normalizeRole(role));
+    }
+
+    /**
+     * 获取角色（规范化后的名字）的掩码，未定义的角色没有任何权限
+     */
+    public int maskFor(String role) {
+        Integer mask = roleMasks.get(role);
+        return mask != null ? mask : 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hzcu.loginmod.policy;
+
+import com.hzcu.loginmod.config.WhitelistConfig;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在线玩家的权限掩码缓存
+ *
+ * Brigadier 在同步命令树、补全和执行时都会检查每个节点的 requires，
+ * 这里每次检查只是一次 UUID 查表和一次位运算。名单或角色变化后由 refresh 重新计算，
+ * 只有掩码发生变化的玩家才重新发送命令树。
+ */
+public final class PlayerPermissions {
+    private static final Map<UUID, Integer> masks = new ConcurrentHashMap<>();
+
+    private PlayerPermissions() {
+    }
+
+    /**
+     * 命令节点的 requires 检查：玩家按权限位判断，服务器控制台和命令方块需要 2 级权限
+     */
+    public static boolean has(CommandSourceStack source, Permission permission) {
+        return hasAny(source, permission.bit());
+    }
+
+    /**
+     * 拥有 mask 中任意一个权限时返回 true
+     */
+    public static boolean hasAny(CommandSourceStack source, int mask) {
+        if (source.getEntity() instanceof ServerPlayer player) {
+            return (maskOf(player.getUUID()) & mask) != 0;
+        }
+        return source.hasPermission(2);
+    }
+
+    /**
+     * 玩家的权限掩码，第一次查询时计算并缓存
+     */
+    public static int maskOf(UUID playerUUID) {
+        Integer mask = masks.get(playerUUID);
+        if (mask == null) {
+            mask = WhitelistConfig.permissionsOf(playerUUID);
+            masks.put(playerUUID, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * 重新计算玩家的权限，发生变化时重新发送命令树（必须在服务器主线程调用）
+     *
+     * @return 权限是否发生了变化
+     */
+    public static boolean refresh(ServerPlayer player) {
+        int mask = WhitelistConfig.permissionsOf(player.getUUID());
+        Integer previous = masks.put(player.getUUID(), mask);
+        if (previous == null || previous == mask) {
+            return false;
+        }
+        player.server.getCommands().sendCommands(player);
+        return true;
+    }
+
+    /**
+     * 玩家离开服务器时移除缓存
+     */
+    public static void forget(UUID playerUUID) {
+        masks.remove(playerUUID);
+    }
+}
@@ -0,0 +1,50 @@
+package com.hzcu.loginmod.policy;
+
+import com.hzcu.loginmod.message.LoginMessages;
+import net.minecraft.network.chat.Component;
+
+import java.util.Locale;
+
+/**
+ * 可以按登录状态限制的玩家操作
+ * 每个操作占掩码中的一位，名称的小写形式用于配置文件
+ */
+public enum RestrictedAction {
+    MOVE(LoginMessages.LOGIN_REMINDER),
+    BREAK_BLOCK(LoginMessages.DENY_BREAK_BLOCK),
+    PLACE_BLOCK(LoginMessages.DENY_PLACE_BLOCK),
+    INTERACT_BLOCK(LoginMessages.DENY_INTERACT_BLOCK),
+    USE_ITEM(LoginMessages.DENY_USE_ITEM),
+    ATTACK(LoginMessages.DENY_ATTACK),
+    INTERACT_ENTITY(LoginMessages.DENY_INTERACT_ENTITY),
+    DROP_ITEM(LoginMessages.DENY_DROP_ITEM),
+    OPEN_CONTAINER(LoginMessages.DENY_OPEN_CONTAINER),
+    CHAT(LoginMessages.DENY_CHAT),
+    COMMAND(LoginMessages.DENY_COMMAND);
+
+    // 所有操作对应的掩码
+    public static final int ALL = (1 << values().length) - 1;
+
+    private final int bit;
+    private final Component message;
+
+    RestrictedAction(Component message) {
+        this.bit = 1 << ordinal();
+        this.message = message;
+    }
+
+    public int bit() {
+        return bit;
+    }
+
+    /**
+     * 操作被拒绝时发给玩家的提示
+     */
+    public Component message() {
+        return message;
+    }
+
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
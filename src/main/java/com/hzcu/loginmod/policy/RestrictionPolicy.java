@@ -0,0 +1,144 @@
+package com.hzcu.loginmod.policy;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的操作限制策略
+ *
+ * 加载配置时把 restrictions 中每个登录状态的操作列表编译成一个 int 掩码，
+ * 事件处理时只需一次状态查询和一次位运算。对象不可变，随配置快照一起替换。
+ */
+public final class RestrictionPolicy {
+    private static final String WILDCARD = "*";
+    private static final String LOGIN_COMMAND = "login";
+
+    private final int[] masks;
+    private final Set<String> allowedCommands;
+
+    private RestrictionPolicy(int[] masks, Set<String> allowedCommands) {
+        this.masks = masks;
+        this.allowedCommands = Set.copyOf(allowedCommands);
+    }
+
+    /**
+     * 未配置的状态使用的默认掩码：登录前禁止一切，登录后不限制
+     */
+    private static int defaultMask(AuthState state) {
+        return state == AuthState.AUTHENTICATED ? 0 : RestrictedAction.ALL;
+    }
+
+    /**
+     * 根据设置编译策略，无法识别的状态或操作名会被忽略并记录警告
+     */
+    public static RestrictionPolicy compile(LoginSettings settings) {
+        int[] masks = new int[AuthState.values().length];
+        for (AuthState state : AuthState.values()) {
+            masks[state.ordinal()] = defaultMask(state);
+        }
+
+        Map<String, List<String>> restrictions = settings.getRestrictions();
+        if (restrictions != null) {
+            for (Map.Entry<String, List<String>> entry : restrictions.entrySet()) {
+                AuthState state = parseState(entry.getKey());
+                if (state == null) {
+                    LoginMod.LOGGER.warn("restrictions 中的未知登录状态: {}", entry.getKey());
+                    continue;
+                }
+                masks[state.ordinal()] = compileMask(entry.getValue());
+            }
+        }
+
+        Set<String> commands = new HashSet<>();
+        // /login 必须始终可用，否则配置错误会让所有人都无法登录
+        commands.add(LOGIN_COMMAND);
+        if (settings.getAllowedCommands() != null) {
+            for (String command : settings.getAllowedCommands()) {
+                if (command != null && !command.isBlank()) {
+                    commands.add(normalizeCommand(command));
+                }
+            }
+        }
+        return new RestrictionPolicy(masks, commands);
+    }
+
+    private static int compileMask(List<String> actions) {
+        int mask = 0;
+        if (actions == null) {
+            return mask;
+        }
+        for (String name : actions) {
+            if (name == null) {
+                continue;
+            }
+            String normalized = name.trim().toLowerCase(Locale.ROOT);
+            if (WILDCARD.equals(normalized)) {
+                mask |= RestrictedAction.ALL;
+                continue;
+            }
+            RestrictedAction action = parseAction(normalized);
+            if (action == null) {
+                LoginMod.LOGGER.warn("restrictions 中的未知操作: {}", name);
+                continue;
+            }
+            mask |= action.bit();
+        }
+        return mask;
+    }
+
+    private static AuthState parseState(String name) {
+        for (AuthState state : AuthState.values()) {
+            if (state.configName().equals(name.trim().toLowerCase(Locale.ROOT))) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private static RestrictedAction parseAction(String name) {
+        for (RestrictedAction action : RestrictedAction.values()) {
+            if (action.configName().equals(name)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private static String normalizeCommand(String command) {
+        String trimmed = command.trim();
+        if (trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 检查某个状态下是否禁止该操作
+     */
+    public boolean isRestricted(AuthState state, RestrictedAction action) {
+        return (masks[state.ordinal()] & action.bit()) != 0;
+    }
+
+    /**
+     * 获取某个状态的掩码
+     */
+    public int maskFor(AuthState state) {
+        return masks[state.ordinal()];
+    }
+
+    /**
+     * 检查命令输入（不含或含前导斜杠）的根命令是否在未登录时允许使用
+     */
+    public boolean isCommandAllowed(String input) {
+        String command = input.startsWith("/") ? input.substring(1) : input;
+        int space = command.indexOf(' ');
+        String root = space >= 0 ? command.substring(0, space) : command;
+        return allowedCommands.contains(root.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,44 @@
+package com.hzcu.loginmod.session;
+
+import com.hzcu.loginmod.policy.AuthState;
+
+/**
+ * 在线玩家的登录会话（不可变，每次状态转换都生成新对象）
+ *
+ * @param state           当前状态
+ * @param joinedAt        加入服务器的时间（毫秒）
+ * @param authenticatedAt 登录成功的时间，未登录时为 0
+ * @param attempts        本次在线期间提交 /login 的次数
+ * @param account         登录使用的账号，白名单玩家或未登录时为 null
+ * @param lockedUntil     LOCKED 状态的解除时间
+ */
+public record PlayerSession(AuthState state, long joinedAt, long authenticatedAt, int attempts,
+                            String account, long lockedUntil) {
+
+    static PlayerSession joined(long now) {
+        return new PlayerSession(AuthState.PENDING, now, 0, 0, null, 0);
+    }
+
+    /**
+     * 锁定到期后视为 PENDING
+     */
+    public AuthState effectiveState(long now) {
+        return state == AuthState.LOCKED && now >= lockedUntil ? AuthState.PENDING : state;
+    }
+
+    PlayerSession withState(AuthState newState) {
+        return new PlayerSession(newState, joinedAt, authenticatedAt, attempts, account, lockedUntil);
+    }
+
+    PlayerSession beginAttempt() {
+        return new PlayerSession(AuthState.AUTHENTICATING, joinedAt, authenticatedAt, attempts + 1, account, 0);
+    }
+
+    PlayerSession authenticated(String boundAccount, long now) {
+        return new PlayerSession(AuthState.AUTHENTICATED, joinedAt, now, attempts, boundAccount, 0);
+    }
+
+    PlayerSession locked(long until) {
+        return new PlayerSession(AuthState.LOCKED, joinedAt, authenticatedAt, attempts, account, until);
+    }
+}
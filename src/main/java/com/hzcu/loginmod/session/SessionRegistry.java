@@ -0,0 +1,142 @@
+package com.hzcu.loginmod.session;
+
+import com.hzcu.loginmod.policy.AuthState;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * 在线玩家的会话表
+ *
+ * 状态转换：PENDING → AUTHENTICATING → AUTHENTICATED，验证失败回到 PENDING，尝试过多时进入 LOCKED，
+ * 锁定到期后自动视为 PENDING。每次转换都以 CAS 方式替换不可变的会话对象，
+ * 主线程、验证线程和网络线程可以并发读写而无需加锁；非法的转换返回 false，不修改会话。
+ */
+public final class SessionRegistry {
+    private static final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+    private SessionRegistry() {
+    }
+
+    /**
+     * 玩家加入服务器时创建 PENDING 会话，已有会话时保持不变
+     */
+    public static PlayerSession join(UUID playerUUID) {
+        PlayerSession created = PlayerSession.joined(System.currentTimeMillis());
+        PlayerSession existing = sessions.putIfAbsent(playerUUID, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * PENDING（或已到期的 LOCKED）→ AUTHENTICATING，并增加尝试次数
+     */
+    public static boolean beginAuthentication(UUID playerUUID) {
+        long now = System.currentTimeMillis();
+        return transition(playerUUID, session -> session.effectiveState(now) == AuthState.PENDING
+            ? session.beginAttempt()
+            : null);
+    }
+
+    /**
+     * AUTHENTICATING → PENDING（验证失败或出错）
+     */
+    public static boolean failAuthentication(UUID playerUUID) {
+        return transition(playerUUID, session -> session.state() == AuthState.AUTHENTICATING
+            ? session.withState(AuthState.PENDING)
+            : null);
+    }
+
+    /**
+     * 任意未登录状态 → AUTHENTICATED，记录登录时间和绑定的账号
+     * 白名单自动登录和会话恢复不经过 AUTHENTICATING，account 可以为 null
+     */
+    public static boolean authenticate(UUID playerUUID, String account) {
+        long now = System.currentTimeMillis();
+        return transition(playerUUID, session -> session.state() != AuthState.AUTHENTICATED
+            ? session.authenticated(account, now)
+            : null);
+    }
+
+    /**
+     * PENDING 或 AUTHENTICATING → LOCKED，直到指定时间（毫秒）
+     */
+    public static boolean lock(UUID playerUUID, long lockedUntil) {
+        long now = System.currentTimeMillis();
+        return transition(playerUUID, session -> {
+            AuthState state = session.effectiveState(now);
+            return state == AuthState.PENDING || state == AuthState.AUTHENTICATING
+                ? session.locked(lockedUntil)
+                : null;
+        });
+    }
+
+    /**
+     * 玩家离开服务器时移除会话
+     */
+    public static PlayerSession remove(UUID playerUUID) {
+        return sessions.remove(playerUUID);
+    }
+
+    /**
+     * 获取会话，玩家不在线时返回 null
+     */
+    public static PlayerSession get(UUID playerUUID) {
+        return sessions.get(playerUUID);
+    }
+
+    /**
+     * 获取玩家当前的状态，没有会话时视为 PENDING
+     */
+    public static AuthState stateOf(UUID playerUUID) {
+        PlayerSession session = sessions.get(playerUUID);
+        return session != null ? session.effectiveState(System.currentTimeMillis()) : AuthState.PENDING;
+    }
+
+    /**
+     * 是否存在尚未登录的会话
+     */
+    public static boolean hasUnauthenticated() {
+        for (PlayerSession session : sessions.values()) {
+            if (session.state() != AuthState.AUTHENTICATED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 处于指定状态的会话数量
+     */
+    public static int count(AuthState state) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (PlayerSession session : sessions.values()) {
+            if (session.effectiveState(now) == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 以 CAS 方式应用状态转换，next 返回 null 表示当前状态不允许该转换
+     */
+    private static boolean transition(UUID playerUUID, UnaryOperator<PlayerSession> next) {
+        while (true) {
+            PlayerSession current = sessions.get(playerUUID);
+            if (current == null) {
+                return false;
+            }
+            PlayerSession updated = next.apply(current);
+            if (updated == null) {
+                return false;
+            }
+            // replace 按 equals 比较；内容相同的会话对象可以互换，不影响正确性
+            if (sessions.replace(playerUUID, current, updated)) {
+                return true;
+            }
+        }
+    }
+}
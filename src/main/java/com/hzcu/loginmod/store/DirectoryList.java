@@ -0,0 +1,34 @@
+package com.hzcu.loginmod.store;
+
+/**
+ * 可在多台服务器之间同步的名单
+ */
+public enum DirectoryList {
+    WHITELIST("whitelist"),
+    ADMINISTRATORS("administrators");
+
+    private final String key;
+
+    DirectoryList(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 在共享存储中使用的名称
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * 按名称查找，未知名称返回 null
+     */
+    public static DirectoryList byKey(String key) {
+        for (DirectoryList list : values()) {
+            if (list.key.equals(key)) {
+                return list;
+            }
+        }
+        return null;
+    }
+}
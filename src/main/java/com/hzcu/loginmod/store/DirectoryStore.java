@@ -0,0 +1,27 @@
+package com.hzcu.loginmod.store;
+
+/**
+ * 白名单和管理员名单的共享存储
+ *
+ * 查询始终使用 WhitelistConfig 中的本地快照；本节点的修改通过 publish 写入共享存储并通知其他服务器，
+ * 其他服务器的修改由实现直接应用到 WhitelistConfig。
+ */
+public interface DirectoryStore {
+
+    /**
+     * 开始同步（服务器启动时调用）
+     *
+     * @param onRemoteChange 其他服务器修改了名单并已应用到本地后调用（在后台线程上）
+     */
+    void start(Runnable onRemoteChange);
+
+    /**
+     * 发布本节点对名单的修改（不阻塞调用线程）
+     */
+    void publish(DirectoryList list, String playerName, boolean added);
+
+    /**
+     * 服务器停止时调用
+     */
+    void close();
+}
@@ -0,0 +1,19 @@
+package com.hzcu.loginmod.store;
+
+/**
+ * 只在本服务器内有效的名单存储，名单只保存在 hzculogin.json 中
+ */
+public final class LocalDirectoryStore implements DirectoryStore {
+
+    @Override
+    public void start(Runnable onRemoteChange) {
+    }
+
+    @Override
+    public void publish(DirectoryList list, String playerName, boolean added) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,31 @@
+package com.hzcu.loginmod.store;
+
+import com.hzcu.loginmod.auth.SessionResumeStore;
+
+import java.util.UUID;
+
+/**
+ * 只在本服务器内有效的会话存储，每次变化后延迟保存到 config/hzculogin-sessions.bin，服务器停止时再保存一次
+ */
+public final class LocalSessionStore implements SessionStore {
+
+    @Override
+    public void remember(UUID playerUUID, String ip, String account, long ttlMillis) {
+        SessionResumeStore.remember(playerUUID, ip, account, ttlMillis);
+    }
+
+    @Override
+    public String tryResume(UUID playerUUID, String ip) {
+        return SessionResumeStore.tryResume(playerUUID, ip);
+    }
+
+    @Override
+    public void start() {
+        SessionResumeStore.load(SessionResumeStore.SESSION_FILE);
+    }
+
+    @Override
+    public void close() {
+        SessionResumeStore.save(SessionResumeStore.SESSION_FILE);
+    }
+}
@@ -0,0 +1,166 @@
+package com.hzcu.loginmod.store;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis 存储共用的连接和线程
+ *
+ * 所有命令在一个后台线程上按提交顺序执行，调用线程（包括服务器主线程）从不等待网络；
+ * 每个订阅频道使用单独的连接和守护线程，断线后按指数退避重连，重连成功后回调 onConnected 重新同步。
+ */
+public final class RedisBackend {
+    // 订阅连接超过该时间没有消息时发送 PING 检查连接
+    private static final int SUBSCRIBE_IDLE_MILLIS = 30_000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+
+    private final LoginSettings settings;
+    private final String prefix;
+    // 区分本节点发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RespClient client;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LoginMod-Redis");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed = false;
+
+    /**
+     * 在 Redis 连接上执行的操作
+     */
+    @FunctionalInterface
+    public interface Command<T> {
+        T run(RespClient client) throws IOException;
+    }
+
+    public RedisBackend(LoginSettings settings) {
+        this.settings = settings;
+        this.prefix = settings.getRedisKeyPrefix();
+        this.client = newClient();
+    }
+
+    private RespClient newClient() {
+        return new RespClient(settings.getRedisHost(), settings.getRedisPort(), settings.getRedisPassword(),
+            settings.getRedisTimeoutMillis());
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 加上配置的前缀后的键名或频道名
+     */
+    public String key(String name) {
+        return prefix + name;
+    }
+
+    /**
+     * 在后台线程上执行命令，失败时记录日志并以异常结束 future
+     */
+    public <T> CompletableFuture<T> submit(String description, Command<T> command) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IOException("redis backend closed"));
+            return future;
+        }
+        executor.execute(() -> {
+            try {
+                future.complete(command.run(client));
+            } catch (IOException | RuntimeException e) {
+                LoginMod.LOGGER.warn("Redis 操作失败（{}）: {}", description, e.getMessage());
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 订阅频道，收到的消息在订阅线程上交给 onMessage
+     *
+     * @param onConnected 每次（重新）订阅成功后调用，用于补上断线期间错过的修改
+     */
+    public void subscribe(String channel, Runnable onConnected, BiConsumer<String, String> onMessage) {
+        Thread thread = new Thread(() -> runSubscriber(channel, onConnected, onMessage),
+            "LoginMod-Redis-Subscriber-" + channel);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runSubscriber(String channel, Runnable onConnected, BiConsumer<String, String> onMessage) {
+        long delay = 500;
+        while (!closed) {
+            RespClient subscriber = newClient();
+            try {
+                subscriber.send("SUBSCRIBE", channel);
+                subscriber.receive(settings.getRedisTimeoutMillis());
+                LoginMod.LOGGER.info("已订阅 Redis 频道 {}", channel);
+                delay = 500;
+                onConnected.run();
+
+                boolean pingSent = false;
+                while (!closed) {
+                    Object reply;
+                    try {
+                        reply = subscriber.receive(SUBSCRIBE_IDLE_MILLIS);
+                    } catch (SocketTimeoutException e) {
+                        if (pingSent) {
+                            throw new IOException("no response to PING");
+                        }
+                        subscriber.send("PING");
+                        pingSent = true;
+                        continue;
+                    }
+                    pingSent = false;
+                    if (reply instanceof List<?> items && items.size() == 3 && "message".equals(items.get(0))) {
+                        onMessage.accept((String) items.get(1), (String) items.get(2));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    LoginMod.LOGGER.warn("Redis 订阅 {} 中断，{} ms 后重连: {}", channel, delay, e.getMessage());
+                }
+            } finally {
+                subscriber.close();
+            }
+
+            if (closed) {
+                break;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * 执行完已提交的命令后关闭连接（服务器停止时调用）
+     */
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(settings.getRedisTimeoutMillis() * 2L, TimeUnit.MILLISECONDS)) {
+                LoginMod.LOGGER.warn("Redis 命令未在停服前全部完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        client.close();
+    }
+}
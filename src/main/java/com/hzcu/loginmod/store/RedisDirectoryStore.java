@@ -0,0 +1,124 @@
+package com.hzcu.loginmod.store;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.WhitelistConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 通过 Redis 在多台服务器之间共享的白名单和管理员名单
+ *
+ * 每个名单是一个哈希 prefix + 名单名，字段为规范化后的玩家名，值为原始大小写的玩家名；
+ * 修改发布到频道 prefix + "directory"，消息格式为 "节点\t+|-\t名单名\t玩家名"。
+ * 订阅（重新）建立后读取完整名单替换本地名单。第一台连接的服务器用本地名单初始化 Redis，
+ * 并写入标记键 prefix + "directory:initialized"；之后即使名单被清空也不会再次上传本地名单。
+ */
+public final class RedisDirectoryStore implements DirectoryStore {
+    private static final String CHANNEL = "directory";
+    private static final String INITIALIZED_KEY = "directory:initialized";
+
+    private final RedisBackend backend;
+    private volatile Runnable onRemoteChange = () -> { };
+
+    public RedisDirectoryStore(RedisBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void start(Runnable onRemoteChange) {
+        this.onRemoteChange = onRemoteChange;
+        backend.subscribe(backend.key(CHANNEL), this::resync, (channel, message) -> onMessage(message));
+    }
+
+    @Override
+    public void publish(DirectoryList list, String playerName, boolean added) {
+        backend.submit((added ? "添加 " : "移除 ") + list.key() + " " + playerName, client -> {
+            if (added) {
+                client.command("HSET", backend.key(list.key()), WhitelistConfig.normalize(playerName), playerName);
+            } else {
+                client.command("HDEL", backend.key(list.key()), WhitelistConfig.normalize(playerName));
+            }
+            return client.command("PUBLISH", backend.key(CHANNEL),
+                backend.nodeId() + "\t" + (added ? "+" : "-") + "\t" + list.key() + "\t" + playerName);
+        });
+    }
+
+    @Override
+    public void close() {
+        // 名单保存在 Redis 和本地 hzculogin.json 中，无需另外保存
+    }
+
+    private void onMessage(String message) {
+        String[] parts = message.split("\t", 4);
+        if (parts.length != 4 || parts[0].equals(backend.nodeId())) {
+            return;
+        }
+        DirectoryList list = DirectoryList.byKey(parts[2]);
+        if (list == null || !("+".equals(parts[1]) || "-".equals(parts[1]))) {
+            LoginMod.LOGGER.warn("忽略格式无效的名单消息: {}", message);
+            return;
+        }
+        if (WhitelistConfig.applyRemoteChange(list, parts[3], "+".equals(parts[1]))) {
+            LoginMod.LOGGER.info("其他服务器{}了{}: {}", "+".equals(parts[1]) ? "添加" : "移除", list.key(), parts[3]);
+            onRemoteChange.run();
+        }
+    }
+
+    /**
+     * 读取 Redis 中的完整名单替换本地名单，Redis 还没有初始化过时先上传本地名单
+     */
+    private void resync() {
+        backend.submit("同步名单", client -> {
+            if (!initialized(client)) {
+                List<String> whitelist = names(client.command("HVALS", backend.key(DirectoryList.WHITELIST.key())));
+                List<String> administrators = names(client.command("HVALS", backend.key(DirectoryList.ADMINISTRATORS.key())));
+                // 名单非空说明旧版本已经上传过，只补写标记；几台服务器同时初始化时上传的名单合并在一起
+                if (whitelist.isEmpty() && administrators.isEmpty()) {
+                    seed(client, DirectoryList.WHITELIST, WhitelistConfig.getWhitelistedPlayers());
+                    seed(client, DirectoryList.ADMINISTRATORS, WhitelistConfig.getAdministrators());
+                    LoginMod.LOGGER.info("Redis 中还没有名单，已上传本地的 {} 个白名单玩家和 {} 个管理员",
+                        WhitelistConfig.getWhitelistCount(), WhitelistConfig.getAdministratorCount());
+                }
+                client.command("SET", backend.key(INITIALIZED_KEY), backend.nodeId());
+            }
+            List<String> whitelist = names(client.command("HVALS", backend.key(DirectoryList.WHITELIST.key())));
+            List<String> administrators = names(client.command("HVALS", backend.key(DirectoryList.ADMINISTRATORS.key())));
+            return WhitelistConfig.replaceLists(whitelist, administrators);
+        }).thenAccept(changed -> {
+            if (changed) {
+                onRemoteChange.run();
+            }
+        });
+    }
+
+    private boolean initialized(RespClient client) throws IOException {
+        Object reply = client.command("EXISTS", backend.key(INITIALIZED_KEY));
+        return reply instanceof Long count && count > 0;
+    }
+
+    private void seed(RespClient client, DirectoryList list, List<String> names) throws IOException {
+        if (names.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(names.size() * 2 + 2);
+        args.add("HSET");
+        args.add(backend.key(list.key()));
+        for (String name : names) {
+            args.add(WhitelistConfig.normalize(name));
+            args.add(name);
+        }
+        client.command(args.toArray(new String[0]));
+    }
+
+    private static List<String> names(Object reply) {
+        List<String> names = new ArrayList<>();
+        if (reply instanceof List<?> items) {
+            for (Object item : items) {
+                names.add((String) item);
+            }
+        }
+        return names;
+    }
+}
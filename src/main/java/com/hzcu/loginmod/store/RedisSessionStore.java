@@ -0,0 +1,192 @@
+package com.hzcu.loginmod.store;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 通过 Redis 在多台服务器之间共享的会话存储
+ *
+ * 每个会话保存为带过期时间的键 prefix + "session:" + UUID，值为 "过期时间\tIP\t账号"；
+ * 修改同时发布到频道 prefix + "sessions"，各服务器据此维护本地缓存，tryResume 只查本地缓存，不等待网络。
+ * 订阅（重新）建立后用 SCAN 读取全部会话，补上断线期间错过的修改。
+ * 会话绑定玩家的 IP，代理必须转发玩家的真实 IP；玩家的地址是本机地址时视为代理没有转发，不保存也不恢复会话。
+ */
+public final class RedisSessionStore implements SessionStore {
+    private static final String SESSION_KEY = "session:";
+    private static final String CHANNEL = "sessions";
+    private static final int SCAN_COUNT = 500;
+
+    private final RedisBackend backend;
+    private final Map<UUID, ResumeEntry> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean warnedUnforwarded = new AtomicBoolean();
+
+    private record ResumeEntry(String ip, String account, long expiresAt) {
+
+        String encode() {
+            return expiresAt + "\t" + ip + "\t" + account;
+        }
+
+        static ResumeEntry decode(String value) {
+            String[] parts = value.split("\t", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new ResumeEntry(parts[1], parts[2], Long.parseLong(parts[0]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    public RedisSessionStore(RedisBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void remember(UUID playerUUID, String ip, String account, long ttlMillis) {
+        if (!isForwarded(ip)) {
+            return;
+        }
+        ResumeEntry entry = new ResumeEntry(ip, account, System.currentTimeMillis() + ttlMillis);
+        cache.put(playerUUID, entry);
+        String value = entry.encode();
+        backend.submit("保存会话 " + playerUUID, client -> {
+            client.command("SET", sessionKey(playerUUID), value, "PX", Long.toString(ttlMillis));
+            return client.command("PUBLISH", backend.key(CHANNEL),
+                backend.nodeId() + "\t+\t" + playerUUID + "\t" + value);
+        });
+    }
+
+    @Override
+    public String tryResume(UUID playerUUID, String ip) {
+        if (!isForwarded(ip)) {
+            return null;
+        }
+        ResumeEntry entry = cache.remove(playerUUID);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis() || !entry.ip.equals(ip)) {
+            return null;
+        }
+        // 会话只能使用一次，让其他服务器上的缓存同样失效
+        backend.submit("移除会话 " + playerUUID, client -> {
+            client.command("DEL", sessionKey(playerUUID));
+            return client.command("PUBLISH", backend.key(CHANNEL), backend.nodeId() + "\t-\t" + playerUUID);
+        });
+        return entry.account;
+    }
+
+    @Override
+    public void start() {
+        backend.subscribe(backend.key(CHANNEL), this::resync, (channel, message) -> onMessage(message));
+    }
+
+    @Override
+    public void close() {
+        // 会话以带过期时间的键保存在 Redis 中，无需另外保存
+    }
+
+    /**
+     * 代理没有转发真实 IP 时所有玩家的地址都是代理的地址，按 IP 绑定会话不再有任何保护作用
+     * 只能识别与代理在同一台机器上的情况（本机地址），其他情况需要按文档开启 IP 转发
+     */
+    private boolean isForwarded(String ip) {
+        boolean loopback;
+        try {
+            loopback = InetAddress.getByName(ip).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            loopback = false;
+        }
+        if (loopback && warnedUnforwarded.compareAndSet(false, true)) {
+            LoginMod.LOGGER.warn("玩家的地址 {} 是本机地址，代理可能没有转发玩家的真实 IP，跨服务器会话恢复已停用。"
+                + "请在 BungeeCord 中开启 ip_forward，或在 Velocity 中设置 player-info-forwarding-mode", ip);
+        }
+        return !loopback;
+    }
+
+    private String sessionKey(UUID playerUUID) {
+        return backend.key(SESSION_KEY + playerUUID);
+    }
+
+    /**
+     * 处理其他服务器发布的修改："节点\t+\tUUID\t过期时间\tIP\t账号" 或 "节点\t-\tUUID"
+     */
+    private void onMessage(String message) {
+        String[] parts = message.split("\t", 4);
+        if (parts.length < 3 || parts[0].equals(backend.nodeId())) {
+            return;
+        }
+        try {
+            UUID playerUUID = UUID.fromString(parts[2]);
+            if ("-".equals(parts[1])) {
+                cache.remove(playerUUID);
+            } else if ("+".equals(parts[1]) && parts.length == 4) {
+                ResumeEntry entry = ResumeEntry.decode(parts[3]);
+                if (entry != null) {
+                    cache.put(playerUUID, entry);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            LoginMod.LOGGER.warn("忽略格式无效的会话消息: {}", message);
+        }
+    }
+
+    /**
+     * 从 Redis 读取全部会话并替换本地缓存
+     */
+    private void resync() {
+        backend.submit("读取会话", client -> {
+            Map<UUID, ResumeEntry> loaded = new HashMap<>();
+            String cursor = "0";
+            do {
+                List<?> reply = (List<?>) client.command("SCAN", cursor,
+                    "MATCH", backend.key(SESSION_KEY) + "*", "COUNT", Integer.toString(SCAN_COUNT));
+                cursor = (String) reply.get(0);
+                List<?> keys = (List<?>) reply.get(1);
+                if (!keys.isEmpty()) {
+                    loadValues(client, keys, loaded);
+                }
+            } while (!"0".equals(cursor));
+            return loaded;
+        }).thenAccept(loaded -> {
+            cache.keySet().retainAll(loaded.keySet());
+            cache.putAll(loaded);
+            LoginMod.LOGGER.info("从 Redis 同步了 {} 个可续用的登录会话", loaded.size());
+        });
+    }
+
+    private void loadValues(RespClient client, List<?> keys, Map<UUID, ResumeEntry> loaded) throws IOException {
+        List<String> args = new ArrayList<>(keys.size() + 1);
+        args.add("MGET");
+        for (Object key : keys) {
+            args.add((String) key);
+        }
+        List<?> values = (List<?>) client.command(args.toArray(new String[0]));
+        int prefixLength = backend.key(SESSION_KEY).length();
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue; // 读取前已过期
+            }
+            try {
+                UUID playerUUID = UUID.fromString(((String) keys.get(i)).substring(prefixLength));
+                ResumeEntry entry = ResumeEntry.decode((String) value);
+                if (entry != null) {
+                    loaded.put(playerUUID, entry);
+                }
+            } catch (IllegalArgumentException e) {
+                // 不是本模组写入的键
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.hzcu.loginmod.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 最小的 Redis 协议（RESP2）客户端
+ *
+ * 一个实例对应一条 TCP 连接，首次使用时建立，出错后关闭并在下一次调用时重新连接。
+ * 回复按类型转换为 String（状态和批量字符串，nil 为 null）、Long（整数）和 List（数组），
+ * 错误回复抛出 {@link ErrorReply}。不是线程安全的，由调用方保证同一时间只有一个线程使用。
+ */
+public final class RespClient implements Closeable {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int timeoutMillis;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+
+    /**
+     * Redis 返回的错误回复
+     */
+    public static final class ErrorReply extends IOException {
+        public ErrorReply(String message) {
+            super(message);
+        }
+    }
+
+    public RespClient(String host, int port, String password, int timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 执行一条命令并返回回复
+     */
+    public Object command(String... args) throws IOException {
+        try {
+            connect();
+            write(args);
+            return read();
+        } catch (ErrorReply e) {
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 只发送命令不等待回复（订阅连接使用）
+     */
+    public void send(String... args) throws IOException {
+        try {
+            connect();
+            write(args);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 在指定时间内读取下一条回复（订阅连接等待推送消息），超时抛出 SocketTimeoutException 但不断开连接
+     */
+    public Object receive(int waitMillis) throws IOException {
+        try {
+            connect();
+            socket.setSoTimeout(waitMillis);
+            return read();
+        } catch (ErrorReply | SocketTimeoutException e) {
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        Socket connection = new Socket();
+        try {
+            connection.connect(new InetSocketAddress(host, port), timeoutMillis);
+            connection.setSoTimeout(timeoutMillis);
+            connection.setTcpNoDelay(true);
+            socket = connection;
+            in = new BufferedInputStream(connection.getInputStream());
+            out = new BufferedOutputStream(connection.getOutputStream());
+            if (password != null && !password.isEmpty()) {
+                write(new String[]{"AUTH", password});
+                read();
+            }
+        } catch (IOException e) {
+            close();
+            connection.close();
+            throw e;
+        }
+    }
+
+    private void write(String[] args) throws IOException {
+        out.write(('*' + Integer.toString(args.length)).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        for (String arg : args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            out.write(('$' + Integer.toString(bytes.length)).getBytes(StandardCharsets.US_ASCII));
+            out.write(CRLF);
+            out.write(bytes);
+            out.write(CRLF);
+        }
+        out.flush();
+    }
+
+    private Object read() throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("connection closed by server");
+        }
+        String line = readLine();
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                throw new ErrorReply(line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] bytes = in.readNBytes(length);
+                if (bytes.length < length || in.read() != '\r' || in.read() != '\n') {
+                    throw new EOFException("truncated bulk string");
+                }
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case '*': {
+                int count = Integer.parseInt(line);
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(read());
+                }
+                return items;
+            }
+            default:
+                throw new IOException("unexpected reply type: " + (char) type);
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException("connection closed by server");
+            }
+            buffer.write(b);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("malformed reply line");
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 连接已经不可用，忽略关闭错误
+            }
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.hzcu.loginmod.store;
+
+import java.util.UUID;
+
+/**
+ * 可恢复的登录会话存储
+ *
+ * 记住已登录玩家的 (UUID, IP, 账号)，有效期内从同一 IP 重新连接（包括通过代理切换到另一台服务器）时无需再次登录。
+ * 会话在登录时写入、在线期间每隔半个有效期刷新、离开服务器时再刷新一次，因此玩家在线期间一直有效：
+ * 代理切换服务器时玩家先加入新服务器、后离开旧服务器，新服务器加入时就能找到会话。
+ * remember 和 tryResume 在服务器主线程调用，不能阻塞在网络请求上。
+ */
+public interface SessionStore {
+
+    /**
+     * 写入或刷新已登录玩家的会话，有效期从本次调用算起
+     */
+    void remember(UUID playerUUID, String ip, String account, long ttlMillis);
+
+    /**
+     * 尝试恢复会话，成功时返回绑定的账号并使该会话失效，否则返回 null
+     */
+    String tryResume(UUID playerUUID, String ip);
+
+    /**
+     * 服务器启动时调用
+     */
+    void start();
+
+    /**
+     * 服务器停止时调用
+     */
+    void close();
+}
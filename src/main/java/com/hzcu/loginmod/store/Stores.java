@@ -0,0 +1,70 @@
+package com.hzcu.loginmod.store;
+
+import com.hzcu.loginmod.LoginMod;
+import com.hzcu.loginmod.config.LoginSettings;
+
+/**
+ * 当前使用的会话和名单存储
+ *
+ * 由 settings.storeBackend 决定："local"（默认）只在本服务器内有效，"redis" 在多台服务器之间共享。
+ * 在 configure 之前使用本地存储，因此任何时候调用都是安全的。
+ * 使用 Redis 时会话恢复总是启用（共享会话是它的主要用途），本地存储时由 sessionResumeEnabled 决定。
+ */
+public final class Stores {
+    private static volatile SessionStore sessions = new LocalSessionStore();
+    private static volatile DirectoryStore directory = new LocalDirectoryStore();
+    private static volatile boolean resumeEnabled;
+    private static RedisBackend redis;
+
+    private Stores() {
+    }
+
+    /**
+     * 按设置选择存储后端（服务器启动时调用）
+     */
+    public static synchronized void configure(LoginSettings settings) {
+        shutdown();
+        if ("redis".equalsIgnoreCase(settings.getStoreBackend())) {
+            redis = new RedisBackend(settings);
+            sessions = new RedisSessionStore(redis);
+            directory = new RedisDirectoryStore(redis);
+            resumeEnabled = true;
+            LoginMod.LOGGER.info("会话和名单通过 Redis {}:{} 共享", settings.getRedisHost(), settings.getRedisPort());
+        } else {
+            if (!"local".equalsIgnoreCase(settings.getStoreBackend())) {
+                LoginMod.LOGGER.warn("未知的存储后端 {}，使用 local", settings.getStoreBackend());
+            }
+            sessions = new LocalSessionStore();
+            directory = new LocalDirectoryStore();
+            resumeEnabled = settings.isSessionResumeEnabled();
+        }
+    }
+
+    /**
+     * 是否记住已登录玩家的会话并在重新连接时恢复
+     */
+    public static boolean isResumeEnabled() {
+        return resumeEnabled;
+    }
+
+    public static SessionStore sessions() {
+        return sessions;
+    }
+
+    public static DirectoryStore directory() {
+        return directory;
+    }
+
+    /**
+     * 关闭共享存储的连接并恢复为本地存储（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        if (redis != null) {
+            redis.close();
+            redis = null;
+        }
+        sessions = new LocalSessionStore();
+        directory = new LocalDirectoryStore();
+        resumeEnabled = false;
+    }
+}
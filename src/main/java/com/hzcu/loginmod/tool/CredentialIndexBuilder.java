@@ -0,0 +1,40 @@
+package com.hzcu.loginmod.tool;
+
+import com.hzcu.loginmod.auth.CredentialIndex;
+import com.hzcu.loginmod.auth.UserDataCsv;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * 命令行工具：将 userdata.csv 编译为 userdata.idx
+ *
+ * 用法：java com.hzcu.loginmod.tool.CredentialIndexBuilder [userdata.csv] [userdata.idx]
+ * 也可以通过 ./gradlew buildCredentialIndex 运行
+ */
+public final class CredentialIndexBuilder {
+
+    private CredentialIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path csvPath = Paths.get(args.length > 0 ? args[0] : "userdata.csv");
+        Path indexPath = Paths.get(args.length > 1 ? args[1] : "userdata.idx");
+
+        if (!Files.exists(csvPath)) {
+            System.err.println("用户数据文件不存在: " + csvPath.toAbsolutePath());
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        Map<String, String> credentials = UserDataCsv.read(csvPath);
+        CredentialIndex.write(credentials, indexPath);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("已将 %d 个用户账号写入 %s（%d 字节，耗时 %d ms）%n",
+            credentials.size(), indexPath.toAbsolutePath(), Files.size(indexPath), elapsedMillis);
+    }
+}
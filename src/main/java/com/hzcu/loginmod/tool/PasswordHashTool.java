@@ -0,0 +1,63 @@
+package com.hzcu.loginmod.tool;
+
+import com.hzcu.loginmod.auth.PasswordHasher;
+import com.hzcu.loginmod.auth.UserDataCsv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 命令行工具：密码哈希校准与 userdata.csv 迁移
+ *
+ * 用法：
+ * <pre>
+ * calibrate [预算毫秒]                         测量本机哈希耗时并给出建议的 hashIterations
+ * migrate &lt;输入.csv&gt; &lt;输出.csv&gt; [迭代次数]   把明文证件号码转换为后六位的加盐哈希
+ * </pre>
+ */
+public final class PasswordHashTool {
+
+    private PasswordHashTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 1 && args[0].equals("calibrate")) {
+            long budget = args.length > 1 ? Long.parseLong(args[1]) : 50;
+            int iterations = PasswordHasher.calibrate(budget);
+            System.out.printf("在 %d ms 预算内建议使用 hashIterations = %d%n", budget, iterations);
+        } else if (args.length >= 3 && args[0].equals("migrate")) {
+            int iterations = args.length > 3 ? Integer.parseInt(args[3]) : PasswordHasher.DEFAULT_ITERATIONS;
+            migrate(Paths.get(args[1]), Paths.get(args[2]), iterations);
+        } else {
+            System.err.println("用法: calibrate [预算毫秒] | migrate <输入.csv> <输出.csv> [迭代次数]");
+            System.exit(1);
+        }
+    }
+
+    private static void migrate(Path input, Path output, int iterations) throws IOException {
+        Map<String, String> credentials = new TreeMap<>(UserDataCsv.read(input));
+        int converted = 0;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write(UserDataCsv.HEADER);
+            writer.newLine();
+            for (Map.Entry<String, String> entry : credentials.entrySet()) {
+                String stored = entry.getValue();
+                if (!PasswordHasher.isHashed(stored)) {
+                    stored = PasswordHasher.hash(PasswordHasher.secretOf(stored), iterations);
+                    converted++;
+                }
+                writer.write(entry.getKey() + "," + stored);
+                writer.newLine();
+            }
+        }
+
+        System.out.printf("已迁移 %d 个账号（其中 %d 个从明文转换）到 %s%n",
+            credentials.size(), converted, output.toAbsolutePath());
+    }
+}
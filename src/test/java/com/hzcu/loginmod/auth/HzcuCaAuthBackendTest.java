@@ -0,0 +1,152 @@
+package com.hzcu.loginmod.auth;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.hzcu.loginmod.config.LoginSettings;
+import com.hzcu.loginmod.tool.StubCaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用本地模拟的 CA 接口检查 CA 后端的超时、熔断和半开恢复
+ */
+class HzcuCaAuthBackendTest {
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final int OPEN_MILLIS = 300;
+
+    private StubCaServer stub;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = StubCaServer.start(0, 0, 0, null);
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    private HzcuCaAuthBackend backend(int requestTimeoutMillis, int slowCallMillis) {
+        JsonObject json = new JsonObject();
+        json.addProperty("caEndpoint", stub.endpoint().toString());
+        json.addProperty("caConnectTimeoutMillis", 1000);
+        json.addProperty("caRequestTimeoutMillis", requestTimeoutMillis);
+        json.addProperty("caSlowCallMillis", slowCallMillis);
+        json.addProperty("caMaxInFlight", 4);
+        json.addProperty("caBreakerFailureThreshold", FAILURE_THRESHOLD);
+        json.addProperty("caBreakerOpenMillis", OPEN_MILLIS);
+        return new HzcuCaAuthBackend(new Gson().fromJson(json, LoginSettings.class));
+    }
+
+    private void trip(HzcuCaAuthBackend backend) {
+        stub.setErrorRate(1);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+        }
+    }
+
+    @Test
+    void mapsResponsesToResults() {
+        HzcuCaAuthBackend backend = backend(2000, 0);
+        assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+        assertEquals(AuthResult.WRONG_PASSWORD, backend.authenticate("alice", "123456"));
+        assertEquals(2, stub.requestCount());
+    }
+
+    @Test
+    void slowResponseTimesOut() {
+        HzcuCaAuthBackend backend = backend(200, 0);
+        stub.setLatencyMillis(2000);
+
+        long start = System.nanoTime();
+        AuthResult result = backend.authenticate("alice", "000000");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(AuthResult.UNAVAILABLE, result);
+        assertTrue(elapsedMillis < 1500, "request should give up after the timeout, took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void consecutiveFailuresOpenTheBreaker() {
+        HzcuCaAuthBackend backend = backend(2000, 0);
+        trip(backend);
+        assertEquals(FAILURE_THRESHOLD, stub.requestCount());
+
+        // 断开期间直接失败，请求不再到达 CA
+        stub.setErrorRate(0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+        }
+        assertEquals(FAILURE_THRESHOLD, stub.requestCount());
+    }
+
+    @Test
+    void slowSuccessesCountAsFailures() {
+        HzcuCaAuthBackend backend = backend(2000, 50);
+        stub.setLatencyMillis(150);
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+        }
+
+        stub.setLatencyMillis(0);
+        assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+        assertEquals(FAILURE_THRESHOLD, stub.requestCount());
+    }
+
+    @Test
+    void halfOpenProbeClosesTheBreaker() throws InterruptedException {
+        HzcuCaAuthBackend backend = backend(2000, 0);
+        trip(backend);
+
+        stub.setErrorRate(0);
+        Thread.sleep(OPEN_MILLIS + 100);
+        assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+
+        // 探测成功后恢复闭合，之后的请求都会发出
+        for (int i = 0; i < 3; i++) {
+            assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+        }
+        assertEquals(FAILURE_THRESHOLD + 4, stub.requestCount());
+    }
+
+    @Test
+    void failedProbeReopensAndLaterProbeRecovers() throws InterruptedException {
+        HzcuCaAuthBackend backend = backend(2000, 0);
+        trip(backend);
+
+        Thread.sleep(OPEN_MILLIS + 100);
+        assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+        assertEquals(FAILURE_THRESHOLD + 1, stub.requestCount());
+
+        // 探测失败后重新断开
+        stub.setErrorRate(0);
+        assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+        assertEquals(FAILURE_THRESHOLD + 1, stub.requestCount());
+
+        Thread.sleep(OPEN_MILLIS + 100);
+        assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+        assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+    }
+
+    @Test
+    void timedOutProbeDoesNotWedgeTheBreaker() throws InterruptedException {
+        HzcuCaAuthBackend backend = backend(200, 0);
+        trip(backend);
+
+        // 探测请求超时：计为失败并释放探测名额
+        stub.setErrorRate(0);
+        stub.setLatencyMillis(2000);
+        Thread.sleep(OPEN_MILLIS + 100);
+        assertEquals(AuthResult.UNAVAILABLE, backend.authenticate("alice", "000000"));
+
+        stub.setLatencyMillis(0);
+        Thread.sleep(OPEN_MILLIS + 100);
+        assertEquals(AuthResult.SUCCESS, backend.authenticate("alice", "000000"));
+    }
+}
@@ -0,0 +1,218 @@
+package com.hzcu.loginmod.session;
+
+import com.hzcu.loginmod.policy.AuthState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多个线程同时对同一批会话做 join / beginAuthentication / failAuthentication / authenticate / lock / remove，
+ * 检查 CAS 转换不会丢失更新、不会有两个线程同时赢得同一次转换，也不会让已移除的会话复活
+ */
+class SessionRegistryStressTest {
+    private static final int THREADS = 8;
+
+    /**
+     * 同时启动 THREADS 个线程执行 task，等待全部结束，线程中的断言失败会重新抛出
+     */
+    private static void race(ThreadTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }, "SessionStress-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!errors.isEmpty()) {
+            AssertionError error = new AssertionError("stress thread failed", errors.get(0));
+            errors.stream().skip(1).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int index) throws Exception;
+    }
+
+    @Test
+    void onlyOneThreadBeginsEachAuthentication() throws InterruptedException {
+        UUID player = UUID.randomUUID();
+        SessionRegistry.join(player);
+        try {
+            for (int round = 1; round <= 500; round++) {
+                AtomicInteger winners = new AtomicInteger();
+                race(index -> {
+                    if (SessionRegistry.beginAuthentication(player)) {
+                        winners.incrementAndGet();
+                    }
+                });
+                assertEquals(1, winners.get(), "round " + round);
+                assertEquals(AuthState.AUTHENTICATING, SessionRegistry.stateOf(player));
+                assertEquals(round, SessionRegistry.get(player).attempts());
+                assertTrue(SessionRegistry.failAuthentication(player));
+            }
+        } finally {
+            SessionRegistry.remove(player);
+        }
+    }
+
+    @Test
+    void concurrentTransitionsNeverLoseAttempts() throws InterruptedException {
+        UUID[] players = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        AtomicInteger[] begun = new AtomicInteger[players.length];
+        AtomicInteger[] failed = new AtomicInteger[players.length];
+        for (int i = 0; i < players.length; i++) {
+            SessionRegistry.join(players[i]);
+            begun[i] = new AtomicInteger();
+            failed[i] = new AtomicInteger();
+        }
+
+        try {
+            race(index -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < 50_000; op++) {
+                    int player = random.nextInt(players.length);
+                    switch (random.nextInt(4)) {
+                        case 0, 1 -> {
+                            if (SessionRegistry.beginAuthentication(players[player])) {
+                                begun[player].incrementAndGet();
+                            }
+                        }
+                        case 2 -> {
+                            if (SessionRegistry.failAuthentication(players[player])) {
+                                failed[player].incrementAndGet();
+                            }
+                        }
+                        default -> {
+                            // 已经到期的锁定：立即视为 PENDING，可以再次开始验证
+                            SessionRegistry.lock(players[player], System.currentTimeMillis() - 1);
+                        }
+                    }
+                    // 这些操作都不会让玩家登录
+                    AuthState state = SessionRegistry.stateOf(players[player]);
+                    assertTrue(state != AuthState.AUTHENTICATED, "unexpected state " + state);
+                }
+            });
+
+            for (int i = 0; i < players.length; i++) {
+                PlayerSession session = SessionRegistry.get(players[i]);
+                // 每次成功的 beginAuthentication 都恰好增加一次尝试次数
+                assertEquals(begun[i].get(), session.attempts(), "attempts of player " + i);
+                // 每次成功的 failAuthentication 都消耗了一次 AUTHENTICATING
+                assertTrue(failed[i].get() <= begun[i].get(), "more failures than attempts for player " + i);
+            }
+        } finally {
+            for (UUID player : players) {
+                SessionRegistry.remove(player);
+            }
+        }
+    }
+
+    @Test
+    void authenticateWinsExactlyOnceAgainstFailAndLock() throws InterruptedException {
+        for (int round = 0; round < 500; round++) {
+            UUID player = UUID.randomUUID();
+            SessionRegistry.join(player);
+            assertTrue(SessionRegistry.beginAuthentication(player));
+
+            AtomicInteger authenticated = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            AtomicInteger locked = new AtomicInteger();
+            long lockedUntil = System.currentTimeMillis() + 60_000;
+            try {
+                race(index -> {
+                    switch (index % 3) {
+                        case 0 -> {
+                            if (SessionRegistry.authenticate(player, "account-" + index)) {
+                                authenticated.incrementAndGet();
+                            }
+                        }
+                        case 1 -> {
+                            if (SessionRegistry.failAuthentication(player)) {
+                                failed.incrementAndGet();
+                            }
+                        }
+                        default -> {
+                            if (SessionRegistry.lock(player, lockedUntil)) {
+                                locked.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+
+                assertEquals(1, authenticated.get(), "round " + round);
+                assertTrue(failed.get() <= 1, "AUTHENTICATING was failed " + failed.get() + " times");
+                assertTrue(locked.get() <= 1, "session was locked " + locked.get() + " times");
+                PlayerSession session = SessionRegistry.get(player);
+                assertEquals(AuthState.AUTHENTICATED, session.state());
+                assertTrue(session.account().startsWith("account-"));
+                assertEquals(1, session.attempts());
+            } finally {
+                SessionRegistry.remove(player);
+            }
+        }
+    }
+
+    @Test
+    void removedSessionsAreNotResurrected() throws InterruptedException {
+        for (int round = 0; round < 500; round++) {
+            UUID player = UUID.randomUUID();
+            SessionRegistry.join(player);
+            race(index -> {
+                if (index == 0) {
+                    SessionRegistry.remove(player);
+                    return;
+                }
+                for (int op = 0; op < 200; op++) {
+                    SessionRegistry.beginAuthentication(player);
+                    SessionRegistry.lock(player, System.currentTimeMillis() - 1);
+                    SessionRegistry.failAuthentication(player);
+                    SessionRegistry.authenticate(player, null);
+                }
+            });
+            assertNull(SessionRegistry.get(player), "round " + round);
+            assertEquals(AuthState.PENDING, SessionRegistry.stateOf(player));
+        }
+    }
+
+    @Test
+    void concurrentJoinsShareOneSession() throws InterruptedException {
+        for (int round = 0; round < 500; round++) {
+            UUID player = UUID.randomUUID();
+            PlayerSession[] joined = new PlayerSession[THREADS];
+            race(index -> joined[index] = SessionRegistry.join(player));
+            try {
+                for (PlayerSession session : joined) {
+                    assertTrue(session == joined[0], "round " + round + ": join returned different sessions");
+                }
+            } finally {
+                SessionRegistry.remove(player);
+            }
+        }
+    }
+}
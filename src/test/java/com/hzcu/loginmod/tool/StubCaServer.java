@@ -0,0 +1,166 @@
+package com.hzcu.loginmod.tool;
+
+import com.hzcu.loginmod.auth.PasswordHasher;
+import com.hzcu.loginmod.auth.UserDataCsv;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地模拟的 HZCU CA 认证接口，用于在没有外网的环境下检查超时、延迟和熔断行为
+ *
+ * 用法：java com.hzcu.loginmod.tool.StubCaServer [端口] [延迟毫秒] [错误率0-1] [userdata.csv]
+ * 也可以通过 ./gradlew runStubCa 运行。未指定 userdata.csv 时任意用户名配合密码 000000 均可登录。
+ * 将 hzculogin.json 中的 caEndpoint 设为 http://127.0.0.1:端口/auth 即可使用。
+ * 测试中通过 {@link #start} 启动，运行期间可以随时调整延迟和错误率。
+ */
+public final class StubCaServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, String> users;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+
+    private StubCaServer(HttpServer server, ExecutorService executor, long latencyMillis, double errorRate,
+                         Map<String, String> users) {
+        this.server = server;
+        this.executor = executor;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.users = users;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        double errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        Map<String, String> users = args.length > 3 ? UserDataCsv.read(Paths.get(args[3])) : null;
+
+        StubCaServer stub = start(port, latencyMillis, errorRate, users);
+        System.out.printf("模拟 CA 已在 %s 启动（延迟 %d ms，错误率 %.2f）%n", stub.endpoint(), latencyMillis, errorRate);
+    }
+
+    /**
+     * 在 127.0.0.1 上启动，端口为 0 时使用任意空闲端口
+     *
+     * @param users 用户名到密码记录的映射，为 null 时任意用户名配合密码 000000 均可登录
+     */
+    public static StubCaServer start(int port, long latencyMillis, double errorRate,
+                                     Map<String, String> users) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "StubCa");
+            thread.setDaemon(true);
+            return thread;
+        });
+        StubCaServer stub = new StubCaServer(server, executor, latencyMillis, errorRate, users);
+        server.setExecutor(executor);
+        server.createContext("/auth", stub::handle);
+        server.start();
+        return stub;
+    }
+
+    public URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/auth");
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 收到的请求数（包括返回错误的请求）
+     */
+    public int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "");
+                return;
+            }
+            requests.incrementAndGet();
+
+            Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+
+            long latency = latencyMillis;
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            double errors = errorRate;
+            if (errors > 0 && ThreadLocalRandom.current().nextDouble() < errors) {
+                respond(exchange, 503, "");
+                return;
+            }
+
+            String username = form.getOrDefault("username", "");
+            String password = form.getOrDefault("password", "");
+            if (users == null) {
+                respond(exchange, 200, "{\"success\":" + "000000".equals(password) + "}");
+                return;
+            }
+
+            String stored = users.get(username);
+            if (stored == null) {
+                respond(exchange, 404, "");
+            } else {
+                respond(exchange, 200, "{\"success\":" + PasswordHasher.verify(password, stored) + "}");
+            }
+        } catch (IOException e) {
+            // 客户端已超时断开
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
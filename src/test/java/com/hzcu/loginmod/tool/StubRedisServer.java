@@ -0,0 +1,293 @@
+package com.hzcu.loginmod.tool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 本地模拟的 Redis 服务器，用于在没有 Redis 的环境下检查多台服务器之间的会话和名单同步
+ *
+ * 用法：java com.hzcu.loginmod.tool.StubRedisServer [端口]，也可以通过 ./gradlew runStubRedis 运行。
+ * 只实现了本模组用到的命令（PING、AUTH、GET、SET … PX、DEL、EXISTS、MGET、HSET、HDEL、HVALS、SCAN、PUBLISH、SUBSCRIBE），
+ * 数据只保存在内存中，AUTH 接受任意密码。
+ */
+public final class StubRedisServer {
+    private static final Object LOCK = new Object();
+    private static final Map<String, String> strings = new HashMap<>();
+    private static final Map<String, Long> expiries = new HashMap<>();
+    private static final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private static final Map<String, List<Connection>> subscribers = new HashMap<>();
+
+    private StubRedisServer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 6379;
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.out.printf("模拟 Redis 已在 127.0.0.1:%d 启动%n", port);
+
+        while (true) {
+            Socket socket = server.accept();
+            Thread thread = new Thread(() -> serve(socket), "StubRedis-" + socket.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private static void serve(Socket socket) {
+        try (socket) {
+            Connection connection = new Connection(socket);
+            while (true) {
+                List<String> command = connection.readCommand();
+                if (command == null) {
+                    break;
+                }
+                execute(connection, command);
+            }
+        } catch (IOException e) {
+            // 客户端断开
+        } finally {
+            synchronized (LOCK) {
+                subscribers.values().forEach(list -> list.removeIf(c -> c.socket == socket));
+            }
+        }
+    }
+
+    private static void execute(Connection connection, List<String> command) throws IOException {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size());
+        synchronized (LOCK) {
+            switch (name) {
+                case "PING" -> connection.status("PONG");
+                case "AUTH" -> connection.status("OK");
+                case "GET" -> connection.bulk(get(args.get(0)));
+                case "SET" -> {
+                    strings.put(args.get(0), args.get(1));
+                    expiries.remove(args.get(0));
+                    if (args.size() >= 4 && "PX".equalsIgnoreCase(args.get(2))) {
+                        expiries.put(args.get(0), System.currentTimeMillis() + Long.parseLong(args.get(3)));
+                    }
+                    connection.status("OK");
+                }
+                case "DEL" -> {
+                    long removed = 0;
+                    for (String key : args) {
+                        if (get(key) != null) {
+                            removed++;
+                        }
+                        strings.remove(key);
+                        expiries.remove(key);
+                        if (hashes.remove(key) != null) {
+                            removed++;
+                        }
+                    }
+                    connection.integer(removed);
+                }
+                case "EXISTS" -> {
+                    long count = 0;
+                    for (String key : args) {
+                        if (get(key) != null || hashes.containsKey(key)) {
+                            count++;
+                        }
+                    }
+                    connection.integer(count);
+                }
+                case "MGET" -> {
+                    List<String> values = new ArrayList<>();
+                    for (String key : args) {
+                        values.add(get(key));
+                    }
+                    connection.array(values);
+                }
+                case "HSET" -> {
+                    Map<String, String> hash = hashes.computeIfAbsent(args.get(0), key -> new LinkedHashMap<>());
+                    long added = 0;
+                    for (int i = 1; i + 1 < args.size(); i += 2) {
+                        if (hash.put(args.get(i), args.get(i + 1)) == null) {
+                            added++;
+                        }
+                    }
+                    connection.integer(added);
+                }
+                case "HDEL" -> {
+                    Map<String, String> hash = hashes.getOrDefault(args.get(0), Map.of());
+                    long removed = 0;
+                    for (String field : args.subList(1, args.size())) {
+                        if (hash.remove(field) != null) {
+                            removed++;
+                        }
+                    }
+                    connection.integer(removed);
+                }
+                case "HVALS" -> connection.array(new ArrayList<>(hashes.getOrDefault(args.get(0), Map.of()).values()));
+                case "SCAN" -> {
+                    // 一次返回全部匹配的键，只支持以 * 结尾的前缀匹配
+                    String prefix = "";
+                    for (int i = 1; i + 1 < args.size(); i += 2) {
+                        if ("MATCH".equalsIgnoreCase(args.get(i))) {
+                            prefix = args.get(i + 1).replace("*", "");
+                        }
+                    }
+                    List<String> keys = new ArrayList<>();
+                    for (String key : new ArrayList<>(strings.keySet())) {
+                        if (key.startsWith(prefix) && get(key) != null) {
+                            keys.add(key);
+                        }
+                    }
+                    connection.scanReply(keys);
+                }
+                case "PUBLISH" -> {
+                    List<Connection> receivers = subscribers.getOrDefault(args.get(0), List.of());
+                    for (Connection receiver : receivers) {
+                        try {
+                            receiver.array(List.of("message", args.get(0), args.get(1)));
+                        } catch (IOException e) {
+                            // 订阅方已断开，由它自己的线程清理
+                        }
+                    }
+                    connection.integer(receivers.size());
+                }
+                case "SUBSCRIBE" -> {
+                    for (String channel : args) {
+                        subscribers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(connection);
+                        connection.subscribed(channel);
+                    }
+                }
+                default -> connection.error("ERR unknown command '" + name + "'");
+            }
+        }
+    }
+
+    private static String get(String key) {
+        Long expiresAt = expiries.get(key);
+        if (expiresAt != null && expiresAt < System.currentTimeMillis()) {
+            strings.remove(key);
+            expiries.remove(key);
+            return null;
+        }
+        return strings.get(key);
+    }
+
+    /**
+     * 一个客户端连接，回复在 LOCK 内写出，发布的消息和命令回复不会交错
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        List<String> readCommand() throws IOException {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            if (type != '*') {
+                throw new IOException("inline commands are not supported");
+            }
+            int count = Integer.parseInt(readLine());
+            List<String> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (in.read() != '$') {
+                    throw new IOException("expected bulk string");
+                }
+                int length = Integer.parseInt(readLine());
+                byte[] bytes = in.readNBytes(length);
+                in.read();
+                in.read();
+                args.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return args;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                buffer.write(b);
+            }
+            in.read();
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+
+        void status(String value) throws IOException {
+            write("+" + value + "\r\n");
+            out.flush();
+        }
+
+        void error(String message) throws IOException {
+            write("-" + message + "\r\n");
+            out.flush();
+        }
+
+        void integer(long value) throws IOException {
+            write(":" + value + "\r\n");
+            out.flush();
+        }
+
+        void bulk(String value) throws IOException {
+            writeBulk(value);
+            out.flush();
+        }
+
+        void array(List<String> values) throws IOException {
+            write("*" + values.size() + "\r\n");
+            for (String value : values) {
+                writeBulk(value);
+            }
+            out.flush();
+        }
+
+        void scanReply(List<String> keys) throws IOException {
+            write("*2\r\n");
+            writeBulk("0");
+            array(keys);
+        }
+
+        void subscribed(String channel) throws IOException {
+            write("*3\r\n");
+            writeBulk("subscribe");
+            writeBulk(channel);
+            write(":1\r\n");
+            out.flush();
+        }
+
+        private void writeBulk(String value) throws IOException {
+            if (value == null) {
+                write("$-1\r\n");
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            write("$" + bytes.length + "\r\n");
+            out.write(bytes);
+            write("\r\n");
+        }
+
+        private void write(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}